@@ -0,0 +1,83 @@
+package apps.mohit.billit;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that the bills of each account are kept in a database of their own: a bill saved
+ * to one account is never read, summed or deleted through another, and the summaries of
+ * every account read in parallel match the summary of each account read on its own
+ */
+public class AccountDatabasesTest extends AndroidTestCase {
+
+    private DatabaseHelper home;
+    private DatabaseHelper office;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "accounts_");
+        home = new DatabaseHelper(context, "home");
+        office = new DatabaseHelper(context, "office");
+        home.deleteAll();
+        office.deleteAll();
+        int today = DueDates.today();
+        for (int day = -5; day <= 40; day++) {
+            home.insertBill("Home " + day, 1000 + day, today + day, 0);
+            if (day % 4 == 0) {
+                office.insertBill("Office " + day, 7000, today + day, 3);
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        home.deleteAll();
+        office.deleteAll();
+        home.close();
+        office.close();
+        super.tearDown();
+    }
+
+    public void testAccountsDoNotShareBills() {
+        assertEquals("home", home.getAccount());
+        assertEquals(46, home.getSummary().allCount);
+        assertEquals(12, office.getSummary().allCount);
+        for (BillEntry entry : office.getAllBillsInFormat()) {
+            assertTrue(entry.getTitle().startsWith("Office"));
+        }
+
+        office.deleteAll();
+        assertEquals(0, office.getSummary().allCount);
+        assertEquals(46, home.getSummary().allCount);
+        assertNotSame(home.getBillCache(), office.getBillCache());
+    }
+
+    public void testSummariesAreReadForEveryAccount() {
+        Map<String, BillSummary> summaries = DatabaseHelper.summarize(Arrays.asList(office, home));
+
+        assertEquals(Arrays.asList("office", "home"), new ArrayList<>(summaries.keySet()));
+        assertSameSummary(office.getSummary(), summaries.get("office"));
+        assertSameSummary(home.getSummary(), summaries.get("home"));
+        List<BillSummary> each = Arrays.asList(home.getSummary(), office.getSummary());
+        BillSummary total = BillAccounts.total(summaries.values());
+        assertEquals(each.get(0).allCount + each.get(1).allCount, total.allCount);
+        assertEquals(each.get(0).allCents + each.get(1).allCents, total.allCents);
+    }
+
+    private static void assertSameSummary(BillSummary expected, BillSummary summary) {
+        assertEquals(expected.overdueCount, summary.overdueCount);
+        assertEquals(expected.overdueCents, summary.overdueCents);
+        assertEquals(expected.thisWeekCount, summary.thisWeekCount);
+        assertEquals(expected.thisWeekCents, summary.thisWeekCents);
+        assertEquals(expected.thisMonthCount, summary.thisMonthCount);
+        assertEquals(expected.thisMonthCents, summary.thisMonthCents);
+        assertEquals(expected.allCount, summary.allCount);
+        assertEquals(expected.allCents, summary.allCents);
+    }
+}
@@ -0,0 +1,121 @@
+package apps.mohit.billit;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that switching the active account hands out the new account's helper from then on,
+ * sends the screens a reset, and only passes them the changes of the active account, while
+ * the listeners of every account, such as the reminder alarm, hear the changes of both
+ */
+public class AccountSwitchTest extends AndroidTestCase {
+
+    private static final String ACCOUNT = "switch_test";
+    private static final String OTHER_ACCOUNT = "switch_other";
+
+    private Context appContext;
+    private String originalAccount;
+    private final List<String> activeChanges = new ArrayList<>();
+    private final List<String> accountChanges = new ArrayList<>();
+    private DatabaseHelper.ChangeListener activeListener;
+    private DatabaseHelper.AccountChangeListener accountListener;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Switching is only done through the helpers of the application context
+        appContext = getContext().getApplicationContext();
+        originalAccount = DatabaseHelper.getInstance(appContext).getAccount();
+        activeListener = new DatabaseHelper.ChangeListener() {
+            @Override
+            public void onBillChanged(BillChange change) {
+                activeChanges.add(describe(change));
+            }
+        };
+        accountListener = new DatabaseHelper.AccountChangeListener() {
+            @Override
+            public void onBillChanged(String account, BillChange change) {
+                accountChanges.add(account + ":" + describe(change));
+            }
+        };
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        DatabaseHelper.removeChangeListener(activeListener);
+        DatabaseHelper.removeAccountChangeListener(accountListener);
+        DatabaseHelper.switchAccount(appContext, originalAccount);
+        deleteAccount(ACCOUNT);
+        deleteAccount(OTHER_ACCOUNT);
+        super.tearDown();
+    }
+
+    public void testSwitchingChangesTheActiveAccount() throws Exception {
+        DatabaseHelper.addChangeListener(activeListener);
+        DatabaseHelper.addAccountChangeListener(accountListener);
+        DatabaseHelper other = DatabaseHelper.getInstance(appContext, OTHER_ACCOUNT);
+
+        DatabaseHelper switched = DatabaseHelper.switchAccount(appContext, ACCOUNT);
+        assertEquals(ACCOUNT, switched.getAccount());
+        assertSame(switched, DatabaseHelper.getInstance(appContext));
+        assertSame(switched, DatabaseHelper.switchAccount(appContext, ACCOUNT));
+
+        int today = DueDates.today();
+        other.insertBill("Office rent", 90000, today + 3, 0);
+        switched.insertBill("Rent", 150000, today + 3, 0);
+        waitForMainThread();
+
+        assertEquals(Arrays.asList("reset", "Rent"), activeChanges);
+        assertEquals(Arrays.asList(ACCOUNT + ":reset", OTHER_ACCOUNT + ":Office rent",
+                ACCOUNT + ":Rent"), accountChanges);
+        assertEquals(1, switched.getSummary().allCount);
+        assertTrue(DatabaseHelper.getAccounts(appContext).containsAll(
+                Arrays.asList(ACCOUNT, OTHER_ACCOUNT)));
+    }
+
+    private static String describe(BillChange change) {
+        return change.isReset() ? "reset" : change.getAfter().getTitle();
+    }
+
+    /**
+     * Waits until every change posted to the main thread so far has been delivered
+     */
+    private static void waitForMainThread() throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                delivered.countDown();
+            }
+        });
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Empties and deletes the database of a test account, once the snapshot queued by its
+     * last write is done, so the snapshot does not open the database again
+     */
+    private void deleteAccount(String account) throws Exception {
+        DatabaseHelper helper = DatabaseHelper.getInstance(appContext, account);
+        helper.deleteAll();
+        new AsyncDatabase(helper).write(new AsyncDatabase.Operation<Void>() {
+            @Override
+            public Void run(DatabaseHelper databaseHelper) {
+                return null;
+            }
+        }, null).get();
+        helper.close();
+        String databaseName = BillAccounts.databaseName(account);
+        new File(appContext.getDatabasePath(databaseName).getPath() + "-snapshot").delete();
+        appContext.deleteDatabase(databaseName);
+    }
+}
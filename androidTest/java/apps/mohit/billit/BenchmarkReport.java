@@ -0,0 +1,98 @@
+package apps.mohit.billit;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records benchmark timings and heap footprints as JSON lines, one object per measurement,
+ * appended to benchmarks.jsonl in the app's external files directory and logged under the
+ * "BillItBenchmark" tag. Each line carries the app version and device, so the files pulled
+ * from each release can be compared to track trends
+ */
+final class BenchmarkReport {
+
+    static final String FILE_NAME = "benchmarks.jsonl";
+    private static final String TAG = "BillItBenchmark";
+
+    private final File file;
+    private final String versionName;
+
+    BenchmarkReport(Context context) {
+        File directory = context.getExternalFilesDir(null);
+        file = new File(directory != null ? directory : context.getFilesDir(), FILE_NAME);
+        String version;
+        try {
+            version = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).versionName;
+        }
+        catch (PackageManager.NameNotFoundException e) {
+            version = "unknown";
+        }
+        versionName = version;
+    }
+
+    /**
+     * Records the timings of one operation
+     * @param benchmark The name of the operation, e.g. "getThisWeekBillsInFormat"
+     * @param rows The number of bills in the table, or 0 if the operation does not read it
+     * @param nanos The time each iteration took
+     */
+    void record(String benchmark, int rows, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long iteration : sorted) {
+            total += iteration;
+        }
+        write(String.format(Locale.US,
+                "\"benchmark\":\"%s\",\"rows\":%d,\"iterations\":%d,\"meanMs\":%.4f,"
+                        + "\"medianMs\":%.4f,\"p90Ms\":%.4f,\"maxMs\":%.4f",
+                benchmark, rows, sorted.length, total / 1e6 / sorted.length,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.9)] / 1e6,
+                sorted[sorted.length - 1] / 1e6));
+    }
+
+    /**
+     * Records the heap taken by holding a number of bills one way
+     * @param benchmark The name of the way the bills are held, e.g. "BillColumns"
+     * @param rows The number of bills held
+     * @param bytes The growth of the heap while the bills were held
+     */
+    void recordMemory(String benchmark, int rows, long bytes) {
+        write(String.format(Locale.US, "\"benchmark\":\"%s\",\"rows\":%d,\"bytes\":%d,"
+                + "\"bytesPerBill\":%.1f", benchmark, rows, bytes, bytes / (double) rows));
+    }
+
+    /**
+     * Appends one result, given as its own JSON fields, with the version and device fields
+     */
+    private void write(String fields) {
+        String line = String.format(Locale.US,
+                "{%s,\"version\":\"%s\",\"device\":\"%s\",\"sdk\":%d,\"timestamp\":%d}",
+                fields, versionName, Build.MODEL.replace("\"", ""), Build.VERSION.SDK_INT,
+                System.currentTimeMillis());
+        Log.i(TAG, line);
+        try {
+            Writer writer = new FileWriter(file, true);
+            try {
+                writer.write(line);
+                writer.write('\n');
+            }
+            finally {
+                writer.close();
+            }
+        }
+        catch (IOException e) {
+            Log.w(TAG, "Could not write " + file, e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package apps.mohit.billit;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that importing a file into the database inserts the bills that can be read, with
+ * their repeat rules and reminders, reports each row that cannot be read by its position in
+ * the file, and that an exported file imports back as the unpaid bills it was written from
+ */
+public class BillImportTest extends AndroidTestCase {
+
+    private DatabaseHelper databaseHelper;
+    private int today;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "import_");
+        databaseHelper = new DatabaseHelper(context);
+        databaseHelper.deleteAll();
+        today = DueDates.today();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testReadableRowsAreImportedWithTheirReminders() throws Exception {
+        BatchInsertResult result = databaseHelper.importBills(BillCsv.source(new StringReader(
+                BillCsv.HEADER + "\n" +
+                "Rent,1500," + day(10) + ",7,,,,,\n" +
+                "Gym,lots," + day(3) + ",0,,,,,\n" +
+                "Water,25," + day(4) + ",-3,,,,,\n" +
+                "Phone,45," + day(2) + ",0,,,,,\n" +
+                "Cleaner,60," + day(-14) + ",3,weeks,1,,0," + day(-7) + "\n" +
+                "Hydro,80,2026-13-45,3,,,,,\n")));
+
+        assertEquals(3, result.insertedCount);
+        List<Integer> failedRows = new ArrayList<>();
+        for (BatchInsertResult.Failure failure : result.failures) {
+            failedRows.add(failure.row);
+        }
+        assertEquals(Arrays.asList(1, 2, 5), failedRows);
+
+        assertRows("select name, amount, date, paid_through from bills order by name",
+                "Cleaner|6000|" + (today - 14) + "|" + (today - 7),
+                "Phone|4500|" + (today + 2) + "|null",
+                "Rent|150000|" + (today + 10) + "|null");
+        // The cleaner's next unpaid occurrence is a week from today, reminded 3 days before
+        assertRows("select b.name, r.fire_day from reminders r join bills b on b.id = r.bill_id " +
+                        "order by b.name",
+                "Cleaner|" + (today + 4),
+                "Rent|" + (today + 3));
+    }
+
+    public void testExportImportsBackAsTheUnpaidBills() throws Exception {
+        databaseHelper.insertBill("Rent", 150000, today + 10, 7);
+        databaseHelper.insertBill("Phone", 4500, today + 2, 0,
+                new Recurrence(Recurrence.MONTHS, 1, today + 2, Recurrence.NO_OCCURRENCE, 6));
+        databaseHelper.insertBill("Paid", 1000, today + 1, 0);
+        for (BillEntry entry : databaseHelper.getAllBillsInFormat()) {
+            if (entry.getTitle().equals("Paid")) {
+                assertTrue(databaseHelper.markPaid(entry, today));
+            }
+        }
+
+        StringWriter json = new StringWriter();
+        BillSink sink = BillJson.sink(json);
+        assertEquals(2, databaseHelper.exportBills(sink));
+        sink.close();
+        databaseHelper.deleteAll();
+        BatchInsertResult result = databaseHelper.importBills(
+                BillJson.source(new StringReader(json.toString())));
+
+        assertEquals(2, result.insertedCount);
+        assertTrue(result.failures.isEmpty());
+        assertRows("select name, repeat_unit, repeat_count, paid_day from bills order by name",
+                "Phone|" + Recurrence.MONTHS + "|6|null",
+                "Rent|" + Recurrence.NONE + "|0|null");
+        assertRows("select count(*) from reminders", "1");
+    }
+
+    private String day(int daysFromToday) {
+        return DueDates.format(today + daysFromToday);
+    }
+
+    /**
+     * Checks the rows a query returns, each written as its columns joined by '|'
+     */
+    private void assertRows(String sql, String... expected) {
+        List<String> rows = new ArrayList<>();
+        Cursor res = databaseHelper.getReadableDatabase().rawQuery(sql, null);
+        try {
+            while (res.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < res.getColumnCount(); i++) {
+                    if (i > 0) {
+                        row.append('|');
+                    }
+                    row.append(res.isNull(i) ? "null" : res.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        finally {
+            res.close();
+        }
+        assertEquals(Arrays.asList(expected), rows);
+    }
+}
@@ -0,0 +1,158 @@
+package apps.mohit.billit;
+
+import android.content.Intent;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Debug;
+import android.support.v7.widget.RecyclerView;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import apps.mohit.billit.Activities.AllBillsList;
+
+/**
+ * Flings the bill list from top to bottom through 10k bills and logs the frame times and
+ * the allocations made on the way under the "BillItBenchmark" tag. The bills are added to
+ * the app's database with a marker in their title and removed again afterwards
+ */
+public class BillListScrollBenchmark extends ActivityInstrumentationTestCase2<AllBillsList> {
+
+    private static final String TAG = "BillItBenchmark";
+    private static final String TITLE_PREFIX = "ScrollBenchmark ";
+    private static final int BILLS = 10000;
+    private static final int FLING_VELOCITY = 20000;
+    private static final int MAX_FLINGS = 500;
+    private static final long JANK_FRAME_NANOS = 16700000L;
+
+    private DatabaseHelper databaseHelper;
+
+    public BillListScrollBenchmark() {
+        super(AllBillsList.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        databaseHelper = DatabaseHelper.getInstance(getInstrumentation().getTargetContext());
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(
+                "insert into bills (name, amount, date, notification) values (?, ?, ?, ?)");
+        int firstDay = DueDates.today();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < BILLS; i++) {
+                insert.bindString(1, TITLE_PREFIX + i);
+                insert.bindLong(2, 1000 + i);
+                insert.bindLong(3, firstDay + i % 365);
+                insert.bindLong(4, 0);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            db.endTransaction();
+            insert.close();
+        }
+        databaseHelper.getBillCache().invalidate();
+        setActivityIntent(new Intent().putExtra("viewChoice", "allBills"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.getWritableDatabase().delete("bills", "name like ?",
+                new String[] {TITLE_PREFIX + "%"});
+        databaseHelper.getBillCache().invalidate();
+        super.tearDown();
+    }
+
+    public void testFlingThrough10kBills() throws Throwable {
+        final RecyclerView list =
+                (RecyclerView) getActivity().findViewById(R.id.allItemsListView);
+        getInstrumentation().waitForIdleSync();
+
+        final FrameRecorder recorder = new FrameRecorder();
+        final boolean[] atEnd = new boolean[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(recorder);
+            }
+        });
+
+        Debug.resetGlobalAllocCount();
+        Debug.resetGlobalAllocSize();
+        Debug.startAllocCounting();
+        for (int i = 0; i < MAX_FLINGS && !atEnd[0]; i++) {
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    list.fling(0, FLING_VELOCITY);
+                }
+            });
+            Thread.sleep(300);
+            runTestOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    atEnd[0] = !list.canScrollVertically(1);
+                }
+            });
+        }
+        Debug.stopAllocCounting();
+        recorder.stop();
+
+        List<Long> frames = recorder.frameNanos;
+        Collections.sort(frames);
+        int janky = 0;
+        for (long frame : frames) {
+            if (frame > JANK_FRAME_NANOS) {
+                janky++;
+            }
+        }
+        Log.i(TAG, String.format("listFling bills=%d reachedEnd=%b frames=%d medianMs=%.2f "
+                        + "p90Ms=%.2f maxMs=%.2f jankyFrames=%d allocCount=%d allocBytes=%d",
+                BILLS, atEnd[0], frames.size(),
+                percentile(frames, 50) / 1e6, percentile(frames, 90) / 1e6,
+                percentile(frames, 100) / 1e6, janky,
+                Debug.getGlobalAllocCount(), Debug.getGlobalAllocSize()));
+        assertTrue("Did not reach the end of the list", atEnd[0]);
+    }
+
+    private static long percentile(List<Long> sorted, int percent) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    /**
+     * Records the time between consecutive frames until it is stopped
+     */
+    private static class FrameRecorder implements Choreographer.FrameCallback {
+
+        final List<Long> frameNanos = Collections.synchronizedList(new ArrayList<Long>());
+        private volatile boolean stopped;
+        private long lastFrameNanos;
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (stopped) {
+                return;
+            }
+            if (lastFrameNanos != 0) {
+                frameNanos.add(frameTimeNanos - lastFrameNanos);
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package apps.mohit.billit;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.List;
+
+/**
+ * Checks that the views read by loadBillWindows in one pass hold exactly the bills that
+ * getAllBillsInFormat, getThisMonthBillsInFormat and getThisWeekBillsInFormat query one by
+ * one, and sum to the same summary as getSummary, and that the snapshot written for startup
+ * sums to it too. The expected bills are queried from SQLite with the cache off, so the two
+ * paths share nothing but the bills table
+ */
+public class BillWindowsTest extends AndroidTestCase {
+
+    private DatabaseHelper databaseHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "windows_");
+        databaseHelper = new DatabaseHelper(context);
+        databaseHelper.deleteAll();
+        int today = DueDates.today();
+        for (int day = -20; day <= 60; day++) {
+            databaseHelper.insertBill("Bill " + day, 1000 + day, today + day, day % 3 == 0 ? 3 : 0);
+            if (day % 7 == 0) {
+                databaseHelper.insertBill("Second " + day, 500, today + day, 0);
+            }
+        }
+        databaseHelper.insertBill("Rent", 150000, today - 40, 5,
+                new Recurrence(Recurrence.WEEKS, 1, today - 40, Recurrence.NO_OCCURRENCE,
+                        Recurrence.NO_COUNT));
+        BillEntry paid = databaseHelper.getThisWeekBillsInFormat().get(0);
+        databaseHelper.markPaid(paid, today);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.getBillCache().setMaxBills(BillCache.DEFAULT_MAX_BILLS);
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testWindowsMatchTheSeparateQueries() {
+        databaseHelper.getBillCache().setMaxBills(0);
+        List<BillEntry> all = databaseHelper.getAllBillsInFormat();
+        List<BillEntry> thisMonth = databaseHelper.getThisMonthBillsInFormat();
+        List<BillEntry> thisWeek = databaseHelper.getThisWeekBillsInFormat();
+        assertNull(databaseHelper.loadBillWindows());
+
+        databaseHelper.getBillCache().setMaxBills(BillCache.DEFAULT_MAX_BILLS);
+        BillWindows windows = databaseHelper.loadBillWindows();
+        assertNotNull(windows);
+        assertSameBills(all, windows.getAll());
+        assertSameBills(thisMonth, windows.getThisMonth());
+        assertSameBills(thisWeek, windows.getThisWeek());
+        assertSameBills(thisWeek, windows.get("thisWeek"));
+        assertSameBills(all, windows.get("allBills"));
+
+        assertSameSummary(databaseHelper.getSummary(), windows.getSummary());
+    }
+
+    public void testSnapshotIsNeverStale() {
+        int today = DueDates.today();
+        assertTrue(databaseHelper.writeSnapshot());
+        BillSnapshot snapshot = databaseHelper.readSnapshot();
+        assertNotNull(snapshot);
+        assertSameSummary(databaseHelper.getSummary(),
+                snapshot.summarize(today, DueDates.oneMonthFromToday()));
+
+        databaseHelper.insertBill("Late Fee", 2500, today + 1, 0);
+        // The write deletes the snapshot, and the one queued after it may be written already
+        snapshot = databaseHelper.readSnapshot();
+        if (snapshot != null) {
+            assertSameSummary(databaseHelper.getSummary(),
+                    snapshot.summarize(today, DueDates.oneMonthFromToday()));
+        }
+        assertTrue(databaseHelper.writeSnapshot());
+        assertSameSummary(databaseHelper.getSummary(),
+                databaseHelper.readSnapshot().summarize(today, DueDates.oneMonthFromToday()));
+    }
+
+    private static void assertSameSummary(BillSummary expected, BillSummary summary) {
+        assertEquals(expected.overdueCount, summary.overdueCount);
+        assertEquals(expected.overdueCents, summary.overdueCents);
+        assertEquals(expected.thisWeekCount, summary.thisWeekCount);
+        assertEquals(expected.thisWeekCents, summary.thisWeekCents);
+        assertEquals(expected.thisMonthCount, summary.thisMonthCount);
+        assertEquals(expected.thisMonthCents, summary.thisMonthCents);
+        assertEquals(expected.allCount, summary.allCount);
+        assertEquals(expected.allCents, summary.allCents);
+    }
+
+    private static void assertSameBills(List<BillEntry> expected, List<BillEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getOccurrenceId(), actual.get(i).getOccurrenceId());
+            assertEquals(expected.get(i).getDueEpochDay(), actual.get(i).getDueEpochDay());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getAmountCents(), actual.get(i).getAmountCents());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package apps.mohit.billit;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Regression benchmarks for the DatabaseHelper operations the app runs and for the due date
+ * helpers, each timed over a number of iterations at several table sizes and recorded as
+ * JSON lines through BenchmarkReport. The cache is turned off, so the timings are those of
+ * SQLite and stay comparable as the table grows
+ */
+public class DataLayerBenchmark extends AndroidTestCase {
+
+    private static final int ITERATIONS = 20;
+    private static final int DATE_ITERATIONS = 10000;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String[] PAYEES = {"Electricity", "Water", "Rent", "Phone", "Internet",
+            "Car Insurance", "Gym", "Credit Card", "Streaming", "Gas"};
+
+    private DatabaseHelper databaseHelper;
+    private BenchmarkReport report;
+
+    /**
+     * One run of an operation, numbered from 0. The untimed warm up run comes last
+     */
+    private interface Operation {
+        void run(int iteration);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context =
+                new RenamingDelegatingContext(getContext(), "datalayer_");
+        databaseHelper = new DatabaseHelper(context);
+        databaseHelper.deleteAll();
+        databaseHelper.getBillCache().setMaxBills(0);
+        report = new BenchmarkReport(getContext());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.getBillCache().setMaxBills(BillCache.DEFAULT_MAX_BILLS);
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testDataLayer1k() {
+        benchmarkDataLayer(1000);
+    }
+
+    public void testDataLayer10k() {
+        benchmarkDataLayer(10000);
+    }
+
+    public void testDataLayer100k() {
+        benchmarkDataLayer(100000);
+    }
+
+    /**
+     * Times the list queries, the row count, and single inserts, updates and deletes with
+     * the given number of bills in the table
+     */
+    private void benchmarkDataLayer(final int rows) {
+        final int today = DueDates.today();
+        List<BillEntry> entries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            entries.add(new BillEntry(0, "Bill " + i, 1000 + i % 50000,
+                    today - 365 + i % (3 * 365), i % 2 == 0 ? 0 : 3));
+        }
+        assertEquals(rows, databaseHelper.insertBills(entries).insertedCount);
+
+        measure("numberOfRows", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(rows, databaseHelper.numberOfRows());
+            }
+        });
+        measure("getThisWeekBillsInFormat", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                databaseHelper.getThisWeekBillsInFormat();
+            }
+        });
+        measure("getThisMonthBillsInFormat", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                databaseHelper.getThisMonthBillsInFormat();
+            }
+        });
+        measure("getAllBillsInFormat", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(rows, databaseHelper.getAllBillsInFormat().size());
+            }
+        });
+
+        measure("insertBill", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertTrue(databaseHelper.insertBill("Inserted " + iteration, 2500,
+                        today + iteration, 3));
+            }
+        });
+        final List<BillEntry> inserted = databaseHelper.searchBills("inserted", ITERATIONS + 1, 0);
+        assertEquals(ITERATIONS + 1, inserted.size());
+        measure("updateEntry", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                BillEntry entry = inserted.get(iteration);
+                databaseHelper.updateEntry(entry.getId(), entry.getTitle(), 3000,
+                        entry.getDueEpochDay() + 1, 5);
+            }
+        });
+        measure("deleteEntry", rows, ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(1, (int) databaseHelper.deleteEntry(inserted.get(iteration).getId()));
+            }
+        });
+    }
+
+    /**
+     * Compares the heap taken by 100k bills held as formatted BillEntry objects, each with
+     * its own title string as read from a cursor, with the same bills held in BillColumns,
+     * where the ten distinct titles are stored once
+     */
+    public void testMemoryFootprint100k() {
+        int rows = 100000;
+        int today = DueDates.today();
+        long before = usedHeap();
+        List<BillEntry> entries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String title = new String(PAYEES[i % PAYEES.length]);
+            entries.add(new BillEntry(i + 1, title, 1000 + i % 50000, today + i / 100, 3));
+        }
+        BillPager.formatted(entries);
+        long entriesBytes = usedHeap() - before;
+
+        before = usedHeap();
+        BillColumns columns = BillColumns.of(entries);
+        long columnsBytes = usedHeap() - before;
+
+        assertEquals(rows, columns.size());
+        report.recordMemory("ArrayList<BillEntry>", rows, entriesBytes);
+        report.recordMemory("BillColumns", rows, columnsBytes);
+    }
+
+    /**
+     * Returns the heap in use after a garbage collection
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Times building and parsing the yyyy-MM-dd due date strings shown on the list and
+     * typed into the date picker, and reading today's date. The "legacy" entries time the
+     * Calendar and String.format code the date helpers replaced, for comparison
+     */
+    public void testDateHelpers() {
+        final int today = DueDates.today();
+        final String[] dates = new String[DATE_ITERATIONS + 1];
+        measure("DueDates.format", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                dates[iteration] = DueDates.format(today + iteration);
+            }
+        });
+        measure("DueDates.parse", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(today + iteration, DueDates.parse(dates[iteration]));
+            }
+        });
+        measure("BillEntry.getDueDateText", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                new BillEntry(iteration, "Bill", 100, today + iteration, 0).getDueDateText();
+            }
+        });
+        measure("DueDates.oneMonthFromToday", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                DueDates.oneMonthFromToday();
+            }
+        });
+        measure("DueDates.today", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                DueDates.today();
+            }
+        });
+        measure("legacy.format", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(dates[iteration], legacyFormat(today + iteration));
+            }
+        });
+        measure("legacy.today", 0, DATE_ITERATIONS, new Operation() {
+            @Override
+            public void run(int iteration) {
+                Calendar calendar = Calendar.getInstance();
+                legacyFormat(DueDates.of(calendar.get(Calendar.YEAR),
+                        calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+            }
+        });
+    }
+
+    /**
+     * Formats an epoch day the way the date helpers did before they did their own arithmetic
+     */
+    private static String legacyFormat(int epochDay) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        return String.format("%04d-%02d-%02d",
+                calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Runs the operation the given number of times after one untimed warm up run, and
+     * records the time each run took. The warm up is run with the last iteration number, so
+     * an operation consuming one input per run needs iterations + 1 inputs
+     */
+    private void measure(String benchmark, int rows, int iterations, Operation operation) {
+        operation.run(iterations);
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            operation.run(i);
+            nanos[i] = SystemClock.elapsedRealtimeNanos() - start;
+        }
+        report.record(benchmark, rows, nanos);
+    }
+}
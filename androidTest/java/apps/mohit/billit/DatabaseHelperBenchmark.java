@@ -0,0 +1,299 @@
+package apps.mohit.billit;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for the DatabaseHelper query paths. Each benchmark fills a throwaway copy of
+ * the bills database with the given number of rows and logs the average latency of the
+ * measured operation under the "BillItBenchmark" tag
+ */
+public class DatabaseHelperBenchmark extends AndroidTestCase {
+
+    private static final String TAG = "BillItBenchmark";
+    private static final int ITERATIONS = 20;
+    // The payees the filled bills are named after, so title searches match a share of them
+    private static final String[] PAYEES = {"Hydro Electric", "City Water", "Rent",
+            "Phone", "Internet", "Car Insurance", "Gym Membership", "Credit Card"};
+
+    private DatabaseHelper databaseHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context =
+                new RenamingDelegatingContext(getContext(), "benchmark_");
+        databaseHelper = new DatabaseHelper(context);
+        databaseHelper.deleteAll();
+        // The queries are measured against SQLite, not the in-memory window
+        databaseHelper.getBillCache().setMaxBills(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.getBillCache().setMaxBills(BillCache.DEFAULT_MAX_BILLS);
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testRangeQuery10k() {
+        benchmarkRangeQuery(10000);
+    }
+
+    public void testRangeQuery100k() {
+        benchmarkRangeQuery(100000);
+    }
+
+    public void testRangeQuery1m() {
+        benchmarkRangeQuery(1000000);
+    }
+
+    /**
+     * Compares a one week range query answered from the bills_unpaid_date index with the same
+     * query forced onto a full table scan, which is how every listing ran before the index
+     */
+    private void benchmarkRangeQuery(int rows) {
+        fillBills(rows);
+        int today = DueDates.today();
+        String range = "date between " + today + " and " + (today + 7) + " order by date, id";
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+
+        long scanNanos = 0;
+        long indexNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            drain(db.rawQuery("select * from bills not indexed where " + range, null));
+            scanNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            databaseHelper.queryBills(today, today + 7, DatabaseHelper.NO_LIMIT, 0);
+            indexNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Log.i(TAG, String.format("rangeQuery rows=%d fullScanMs=%.3f indexedMs=%.3f",
+                rows, scanNanos / 1e6 / ITERATIONS, indexNanos / 1e6 / ITERATIONS));
+    }
+
+    public void testSummary100k() {
+        benchmarkSummary(100000);
+    }
+
+    public void testSummary1m() {
+        benchmarkSummary(1000000);
+    }
+
+    /**
+     * Compares the grouped summary query with loading every bill and adding the ranges up
+     * in Java, which is what a total on the home screen would otherwise have cost
+     */
+    private void benchmarkSummary(int rows) {
+        fillBills(rows);
+        int today = DueDates.today();
+        int weekEnd = today + 7;
+        int monthEnd = DueDates.oneMonthFromToday();
+
+        long loadNanos = 0;
+        long summaryNanos = 0;
+        BillSummary summary = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            long overdueCents = 0;
+            long weekCents = 0;
+            long monthCents = 0;
+            long allCents = 0;
+            for (BillEntry entry : databaseHelper.getAllBillsInFormat()) {
+                int day = entry.getDueEpochDay();
+                if (day < today) {
+                    overdueCents += entry.getAmountCents();
+                }
+                else if (day <= monthEnd) {
+                    monthCents += entry.getAmountCents();
+                    if (day <= weekEnd) {
+                        weekCents += entry.getAmountCents();
+                    }
+                }
+                allCents += entry.getAmountCents();
+            }
+            loadNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            summary = databaseHelper.getSummary();
+            summaryNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            assertEquals(overdueCents, summary.overdueCents);
+            assertEquals(weekCents, summary.thisWeekCents);
+            assertEquals(monthCents, summary.thisMonthCents);
+            assertEquals(allCents, summary.allCents);
+        }
+        assertEquals(rows, summary.allCount);
+        Log.i(TAG, String.format("summary rows=%d loadAllMs=%.3f groupedMs=%.3f",
+                rows, loadNanos / 1e6 / ITERATIONS, summaryNanos / 1e6 / ITERATIONS));
+    }
+
+    public void testWeekQuery10k() {
+        benchmarkWeekQuery(10000);
+    }
+
+    public void testWeekQuery100k() {
+        benchmarkWeekQuery(100000);
+    }
+
+    /**
+     * Compares the one week query with its arguments spliced into the SQL, which gives
+     * SQLite a new statement to parse and plan for every range, with the bound query whose
+     * compiled statement is reused. The range slides by a day each iteration, as paging and
+     * the day changing do, so the spliced SQL is never the same twice in a row
+     */
+    private void benchmarkWeekQuery(int rows) {
+        fillBills(rows);
+        int today = DueDates.today();
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        int iterations = ITERATIONS * 10;
+
+        long splicedNanos = 0;
+        long boundNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            int fromDay = today + i % 60;
+            long start = SystemClock.elapsedRealtimeNanos();
+            drain(db.rawQuery("select * from bills where date between " + fromDay + " and "
+                    + (fromDay + 7) + " order by date, id limit -1 offset 0", null));
+            splicedNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            databaseHelper.queryBills(fromDay, fromDay + 7, DatabaseHelper.NO_LIMIT, 0);
+            boundNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < iterations; i++) {
+            databaseHelper.getThisWeekBillsInFormat();
+        }
+        long weekNanos = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, String.format("weekQuery rows=%d splicedMs=%.3f boundMs=%.3f "
+                        + "getThisWeekBillsInFormatMs=%.3f", rows, splicedNanos / 1e6 / iterations,
+                boundNanos / 1e6 / iterations, weekNanos / 1e6 / iterations));
+    }
+
+    public void testBulkInsert1k() {
+        benchmarkBulkInsert(1000);
+    }
+
+    public void testBulkInsert10k() {
+        benchmarkBulkInsert(10000);
+    }
+
+    public void testBulkInsert100k() {
+        benchmarkBulkInsert(100000);
+    }
+
+    /**
+     * Compares inserting bills one insertBill call at a time, each committed on its own,
+     * with inserting the same bills in one insertBills batch
+     */
+    private void benchmarkBulkInsert(int rows) {
+        int firstDay = DueDates.today();
+        List<BillEntry> entries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            entries.add(new BillEntry(0, "Bill " + i, 1000 + i, firstDay + i % 365, i % 2 == 0 ? 0 : 3));
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (BillEntry entry : entries) {
+            databaseHelper.insertBill(entry.getTitle(), entry.getAmountCents(),
+                    entry.getDueEpochDay(), entry.getLeadDays());
+        }
+        long loopNanos = SystemClock.elapsedRealtimeNanos() - start;
+        assertEquals(rows, databaseHelper.numberOfRows());
+        databaseHelper.deleteAll();
+
+        start = SystemClock.elapsedRealtimeNanos();
+        BatchInsertResult result = databaseHelper.insertBills(entries);
+        long batchNanos = SystemClock.elapsedRealtimeNanos() - start;
+        assertEquals(rows, result.insertedCount);
+        assertTrue(result.failures.isEmpty());
+        assertEquals(rows, databaseHelper.numberOfRows());
+
+        Log.i(TAG, String.format("bulkInsert rows=%d insertBillLoopMs=%.3f insertBillsMs=%.3f",
+                rows, loopNanos / 1e6, batchNanos / 1e6));
+    }
+
+    public void testSearch100k() {
+        benchmarkSearch(100000);
+    }
+
+    /**
+     * Compares finding the first page of bills whose title has a word starting with "elec",
+     * and counting them, through the bills_search full-text index with the same search
+     * done as a LIKE '%elec%' scan over every title
+     */
+    private void benchmarkSearch(int rows) {
+        fillBills(rows);
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        int expected = rows / PAYEES.length;
+
+        long likeNanos = 0;
+        long ftsNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            drain(db.rawQuery("select * from bills where name like '%elec%' order by date, id limit 50", null));
+            Cursor count = db.rawQuery("select count(*) from bills where name like '%elec%'", null);
+            count.moveToFirst();
+            assertEquals(expected, count.getInt(0));
+            count.close();
+            likeNanos += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            assertEquals(50, databaseHelper.searchBills("elec", 50, 0).size());
+            assertEquals(expected, databaseHelper.countSearch("elec"));
+            ftsNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Log.i(TAG, String.format("search rows=%d likeScanMs=%.3f ftsMs=%.3f",
+                rows, likeNanos / 1e6 / ITERATIONS, ftsNanos / 1e6 / ITERATIONS));
+    }
+
+    /**
+     * Inserts the given number of bills spread evenly over three years around today, named
+     * after each of the PAYEES in turn. The bills_search index is kept in step by its triggers
+     */
+    private void fillBills(int rows) {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement(
+                "insert into bills (name, amount, date, notification) values (?, ?, ?, ?)");
+        int firstDay = DueDates.today() - 365;
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                insert.bindString(1, PAYEES[i % PAYEES.length] + " " + i);
+                insert.bindLong(2, 1000 + i % 50000);
+                insert.bindLong(3, firstDay + i % (3 * 365));
+                insert.bindLong(4, i % 2 == 0 ? 0 : 3);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    private static void drain(Cursor cursor) {
+        try {
+            while (cursor.moveToNext()) {
+                cursor.getString(1);
+            }
+        }
+        finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package apps.mohit.billit;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that every DatabaseHelper read path closes the cursors it opens. The helper is given
+ * a cursor factory that counts the cursors still open, which must be none after each call.
+ * This is checked directly rather than through StrictMode, which only reports a leaked
+ * cursor once the garbage collector finalizes it
+ */
+public class DatabaseHelperCursorTest extends AndroidTestCase {
+
+    private final AtomicInteger openCursors = new AtomicInteger();
+    private DatabaseHelper databaseHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "cursor_");
+        databaseHelper = new DatabaseHelper(context, new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver driver,
+                                    String editTable, SQLiteQuery query) {
+                openCursors.incrementAndGet();
+                return new SQLiteCursor(driver, editTable, query) {
+                    private boolean closed;
+
+                    @Override
+                    public void close() {
+                        if (!closed) {
+                            closed = true;
+                            openCursors.decrementAndGet();
+                        }
+                        super.close();
+                    }
+                };
+            }
+        });
+        databaseHelper.deleteAll();
+        int today = DueDates.today();
+        for (int i = 0; i < 10; i++) {
+            databaseHelper.insertBill("Bill " + i, 1000 + i, today + i * 4, i % 2 == 0 ? 0 : 3);
+        }
+        assertNoOpenCursors();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testListQueriesCloseTheirCursors() {
+        assertEquals(10, databaseHelper.getAllBills().size());
+        assertNoOpenCursors();
+        assertEquals(10, databaseHelper.getAllBillsInFormat().size());
+        assertNoOpenCursors();
+        databaseHelper.getThisWeekBillsInFormat();
+        assertNoOpenCursors();
+        databaseHelper.getThisMonthBillsInFormat();
+        assertNoOpenCursors();
+        databaseHelper.queryBillsAfter(DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY,
+                DatabaseHelper.FIRST_DAY, 0, 5);
+        assertNoOpenCursors();
+        databaseHelper.getBillsToRemindBetween(DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY);
+        assertNoOpenCursors();
+        assertEquals(1, databaseHelper.searchBills("bill 3", 5, 0).size());
+        assertNoOpenCursors();
+        assertEquals(4, databaseHelper.searchBillsAfter("bill", DatabaseHelper.FIRST_DAY, 0, 4).size());
+        assertNoOpenCursors();
+    }
+
+    public void testScalarQueriesCloseTheirCursors() {
+        assertEquals(10, databaseHelper.numberOfRows());
+        databaseHelper.countBills(DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY);
+        databaseHelper.getNextReminderDay();
+        assertEquals(10, databaseHelper.getSummary().allCount);
+        assertNoOpenCursors();
+    }
+
+    public void testWritesCloseTheirCursors() {
+        BillEntry first = databaseHelper.getAllBillsInFormat().get(0);
+        assertNotNull(databaseHelper.getBill(first.getId()));
+        databaseHelper.updateEntry(first.getId(), "Renamed", 1, first.getDueEpochDay(), 5);
+        assertEquals(1, databaseHelper.countSearch("ren"));
+        assertEquals(9, databaseHelper.countSearch("bill"));
+        databaseHelper.deleteEntry(first.getId());
+        assertEquals(0, databaseHelper.countSearch("ren"));
+        databaseHelper.takeDueReminders(DueDates.today() + 30);
+        assertNoOpenCursors();
+    }
+
+    public void testPaidBillsLeaveTheListsAndAreArchived() {
+        BillEntry first = databaseHelper.getAllBillsInFormat().get(0);
+        assertTrue(databaseHelper.markPaid(first, DueDates.today() - 1));
+        assertEquals(9, databaseHelper.getAllBillsInFormat().size());
+        assertEquals(9, databaseHelper.getSummary().allCount);
+        assertEquals(10, databaseHelper.numberOfRows());
+        assertEquals(9, databaseHelper.countSearch("bill"));
+        assertEquals(9, databaseHelper.searchBills("bill", DatabaseHelper.NO_LIMIT, 0).size());
+        assertEquals(0, databaseHelper.searchBillsAfter(first.getTitle(), DatabaseHelper.FIRST_DAY, 0, 5).size());
+        assertEquals(0, databaseHelper.archivePaidBills(DatabaseHelper.ARCHIVE_AFTER_DAYS));
+        assertEquals(1, databaseHelper.archivePaidBills(0));
+        assertEquals(9, databaseHelper.numberOfRows());
+        assertNoOpenCursors();
+    }
+
+    public void testArchivingABillThatReusedAnIdKeepsBothInHistory() {
+        BillEntry last = null;
+        for (BillEntry entry : databaseHelper.getAllBillsInFormat()) {
+            if (last == null || entry.getId() > last.getId()) {
+                last = entry;
+            }
+        }
+        assertTrue(databaseHelper.markPaid(last, DueDates.today()));
+        assertEquals(1, databaseHelper.archivePaidBills(0));
+
+        databaseHelper.insertBill("Reused", 500, DueDates.today(), 0);
+        BillEntry reused = databaseHelper.searchBills("reused", 1, 0).get(0);
+        assertEquals(last.getId(), reused.getId());
+        assertTrue(databaseHelper.markPaid(reused, DueDates.today()));
+        assertEquals(1, databaseHelper.archivePaidBills(0));
+
+        Cursor res = databaseHelper.getReadableDatabase().rawQuery(
+                "select name from bills_history where id = ? order by history_id",
+                new String[]{String.valueOf(last.getId())});
+        try {
+            assertEquals(2, res.getCount());
+            res.moveToNext();
+            assertEquals(last.getTitle(), res.getString(0));
+            res.moveToNext();
+            assertEquals("Reused", res.getString(0));
+        }
+        finally {
+            res.close();
+        }
+        assertNoOpenCursors();
+    }
+
+    public void testFailedExportClosesItsCursor() {
+        try {
+            databaseHelper.exportBills(new BillSink() {
+                @Override
+                public void write(BillEntry entry) throws IOException {
+                    throw new IOException("Disk full");
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            fail("Expected the export to fail");
+        }
+        catch (IOException expected) {
+        }
+        assertNoOpenCursors();
+    }
+
+    private void assertNoOpenCursors() {
+        assertEquals("Cursors left open", 0, openCursors.get());
+    }
+}
@@ -0,0 +1,75 @@
+package apps.mohit.billit;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.List;
+
+/**
+ * Checks that a version 2 database, where every column was text, is upgraded without losing
+ * a bill: the bills that can be read are converted, and those whose amount or date cannot
+ * be are kept in bills_unconverted with their text as it was saved
+ */
+public class DatabaseUpgradeTest extends AndroidTestCase {
+
+    private RenamingDelegatingContext context;
+    private DatabaseHelper databaseHelper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = new RenamingDelegatingContext(getContext(), "upgrade_");
+        context.deleteDatabase(BillAccounts.DEFAULT_DATABASE_NAME);
+        SQLiteDatabase db = context.openOrCreateDatabase(BillAccounts.DEFAULT_DATABASE_NAME, 0, null);
+        try {
+            db.execSQL("create table bills (id integer primary key, name text, amount text, " +
+                    "date text, notification text)");
+            db.execSQL("insert into bills values (1, 'Rent', '1500', '2017-05-10', '1 Week Before Due')");
+            db.execSQL("insert into bills values (2, 'Hydro', '$12.50', '2017-05-12', 'No Notifications')");
+            db.execSQL("insert into bills values (3, 'Water', '12,50', '2017-05-14', null)");
+            db.execSQL("insert into bills values (4, 'Phone', '40', '05/16/2017', null)");
+            db.execSQL("insert into bills values (5, 'Gas', '25', null, null)");
+            db.setVersion(2);
+        }
+        finally {
+            db.close();
+        }
+        databaseHelper = new DatabaseHelper(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.close();
+        context.deleteDatabase(BillAccounts.DEFAULT_DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testBillsThatCannotBeReadAreKept() {
+        List<BillEntry> bills = databaseHelper.getAllBillsInFormat();
+
+        assertEquals(2, bills.size());
+        assertEquals(150000, bills.get(0).getAmountCents());
+        assertEquals(DueDates.of(2017, 5, 10), bills.get(0).getDueEpochDay());
+        assertEquals(7, bills.get(0).getLeadDays());
+        assertEquals(1250, bills.get(1).getAmountCents());
+        assertEquals(BillFormat.NO_NOTIFICATION, bills.get(1).getLeadDays());
+
+        Cursor res = databaseHelper.getReadableDatabase().rawQuery(
+                "select id, amount, date from bills_unconverted order by id", null);
+        try {
+            assertEquals(3, res.getCount());
+            res.moveToNext();
+            assertEquals(3, res.getInt(0));
+            assertEquals("12,50", res.getString(1));
+            res.moveToNext();
+            assertEquals("05/16/2017", res.getString(2));
+            res.moveToNext();
+            assertTrue(res.isNull(2));
+        }
+        finally {
+            res.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package apps.mohit.billit;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import apps.mohit.billit.Activities.MainActivity;
+
+/**
+ * Launches MainActivity repeatedly and logs how long it takes to be created and shown under
+ * the "BillItBenchmark" tag. The first launch of the run is logged on its own, as it is the
+ * one that pays for opening the shared database if nothing has opened it yet
+ */
+public class MainActivityStartupBenchmark extends InstrumentationTestCase {
+
+    private static final String TAG = "BillItBenchmark";
+    private static final int LAUNCHES = 20;
+
+    public void testLaunchMainActivity() {
+        Instrumentation instrumentation = getInstrumentation();
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .setClassName(instrumentation.getTargetContext(), MainActivity.class.getName())
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+
+        List<Long> launchNanos = new ArrayList<>();
+        for (int i = 0; i < LAUNCHES; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            Activity activity = instrumentation.startActivitySync(intent);
+            launchNanos.add(SystemClock.elapsedRealtimeNanos() - start);
+            activity.finish();
+            instrumentation.waitForIdleSync();
+        }
+
+        long firstNanos = launchNanos.get(0);
+        List<Long> warm = new ArrayList<>(launchNanos.subList(1, launchNanos.size()));
+        Collections.sort(warm);
+        Log.i(TAG, String.format("mainActivityLaunch launches=%d firstMs=%.2f medianMs=%.2f maxMs=%.2f",
+                LAUNCHES, firstNanos / 1e6, warm.get(warm.size() / 2) / 1e6,
+                warm.get(warm.size() - 1) / 1e6));
+    }
+}
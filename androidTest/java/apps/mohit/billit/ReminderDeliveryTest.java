@@ -0,0 +1,68 @@
+package apps.mohit.billit;
+
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import java.util.List;
+
+/**
+ * Checks that each reminder is delivered exactly once: a reminder saved for today after
+ * today's reminders were delivered is still delivered, editing a bill without moving its
+ * reminder does not deliver it again, and moving a reminder onto today delivers it
+ */
+public class ReminderDeliveryTest extends AndroidTestCase {
+
+    private DatabaseHelper databaseHelper;
+    private int today;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        RenamingDelegatingContext context = new RenamingDelegatingContext(getContext(), "reminders_");
+        databaseHelper = new DatabaseHelper(context);
+        databaseHelper.deleteAll();
+        today = DueDates.today();
+        databaseHelper.insertBill("Rent", 150000, today + 3, 3);
+        databaseHelper.insertBill("Phone", 6000, today + 5, 3);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        databaseHelper.deleteAll();
+        databaseHelper.close();
+        super.tearDown();
+    }
+
+    public void testRemindersAreDeliveredOnce() {
+        assertEquals(today, databaseHelper.getNextReminderDay());
+        List<BillEntry> due = databaseHelper.takeDueReminders(today);
+        assertEquals(1, due.size());
+        assertEquals("Rent", due.get(0).getTitle());
+        assertEquals(today + 2, databaseHelper.getNextReminderDay());
+        assertEquals(0, databaseHelper.takeDueReminders(today).size());
+
+        BillEntry rent = due.get(0);
+        databaseHelper.updateEntry(rent.getId(), "Rent and parking", 160000, today + 3, 3);
+        assertEquals(0, databaseHelper.takeDueReminders(today).size());
+    }
+
+    public void testRemindersSavedAfterDeliveryAreStillDelivered() {
+        assertEquals(1, databaseHelper.takeDueReminders(today).size());
+
+        databaseHelper.insertBill("Water", 2500, today + 1, 1);
+        assertEquals(today, databaseHelper.getNextReminderDay());
+        BillEntry phone = null;
+        for (BillEntry entry : databaseHelper.getAllBillsInFormat()) {
+            if (entry.getTitle().equals("Phone")) {
+                phone = entry;
+            }
+        }
+        databaseHelper.updateEntry(phone.getId(), "Phone", 6000, today + 5, 5);
+
+        List<BillEntry> due = databaseHelper.takeDueReminders(today);
+        assertEquals(2, due.size());
+        assertEquals("Water", due.get(0).getTitle());
+        assertEquals("Phone", due.get(1).getTitle());
+        assertEquals(DatabaseHelper.LAST_DAY, databaseHelper.getNextReminderDay());
+    }
+}
@@ -1,194 +1,419 @@
-package apps.mohit.billit.Activities;
-
-import android.content.DialogInterface;
-import android.content.Intent;
-import android.database.Cursor;
-import android.support.v7.app.AlertDialog;
-import android.support.v7.app.AppCompatActivity;
-import android.os.Bundle;
-import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
-import android.widget.TextView;
-
-import apps.mohit.billit.BillListAdapter;
-import apps.mohit.billit.DatabaseHelper;
-import apps.mohit.billit.R;
-
-/**
- * This activity enables the user to view all bills that are included on the
- * local database. The user has the option to view all the bills that are due
- * this week, this month, and finally show all bills in the database
- *
- * @author Mohit Kewalramani
- * @version 2.0
- * @since 2017-05-10
- */
-public class AllBillsList extends AppCompatActivity {
-
-    private String billRangeChoice;           // The date range choice the user wants to see the bills from
-    private DatabaseHelper databaseHelper;    // The database helper class that lets us access the database
-    private TextView activityTitle;                // The title of the Activity (Positioned at the top)
-    private BillListAdapter billListAdapter;       // The ListAdapter which displays the bill list for viewing
-    private ListView billListView;                 // The Listview that displays the bills for viewing
-
-    /**
-     * This method is executed once this Activity is initialized
-     * Initializes the global variables and sets up the ListView to ensure that
-     * all the data from the local SQLite database has been populated
-     * @param savedInstanceState the saved instance state
-     */
-    @Override
-    protected void onCreate(final Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_all_bills_list);
-
-        billRangeChoice = getIntent().getStringExtra("viewChoice");
-        databaseHelper = new DatabaseHelper(this);
-        activityTitle = (TextView) findViewById(R.id.choiceTitle);
-        billListAdapter = new BillListAdapter();
-        billListView = (ListView) findViewById(R.id.allItemsListView);
-
-        populateDataAndTitle();
-        billListView.setAdapter(billListAdapter);
-        allowEditFunctionality();
-        allowDeleteFunctionality();
-    }
-
-    /**
-     * This method populates the bill list adapter with the data records from
-     * the local database based on the range mentioned by the user
-     */
-    private void populateDataAndTitle(){
-        switch (billRangeChoice){
-            case "allBills":
-                billListAdapter.billList = databaseHelper.getAllBillsInFormat();
-                activityTitle.setText("All Entered Bills");
-                break;
-            case "thisMonth":
-                billListAdapter.billList = databaseHelper.getThisMonthBillsInFormat();
-                activityTitle.setText("Bills Due In A Month");
-                break;
-            case "thisWeek":
-                billListAdapter.billList = databaseHelper.getThisWeekBillsInFormat();
-                activityTitle.setText("Bills Due In A Week");
-                break;
-        }
-    }
-
-    /**
-     * Allows the user to single click on any record, and be given the choice
-     * to edit a record. This method initializes the listview to have the
-     * listener set up for a single click
-     */
-    private void allowEditFunctionality(){
-        final AlertDialog.Builder editAlertDialog = new AlertDialog.Builder(this);
-        billListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                final Cursor cursor = databaseHelper.getReadableDatabase()
-                        .rawQuery("select * from bills", null);
-                cursor.moveToPosition(position);
-                editAlertDialog.setTitle("Edit Bill");
-                editAlertDialog.setMessage("Do you want to edit this Bill?");
-                editAlertDialog.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
-                    @Override
-                    public void onClick(DialogInterface dialog, int which) {
-                        Integer id = cursor.getInt(0);
-                        String title = cursor.getString(1);
-                        String amount = cursor.getString(2);
-                        String date = cursor.getString(3);
-                        String notification = cursor.getString(4);
-                        openEditBill(id, title, amount, date, notification);
-                    }
-                });
-                editAlertDialog.setNegativeButton("No", new DialogInterface.OnClickListener() {
-                    @Override
-                    public void onClick(DialogInterface dialog, int which) {
-                        dialog.dismiss();
-                    }
-                });
-                editAlertDialog.create();
-                editAlertDialog.show();
-            }
-        });
-    }
-
-    /**
-     * This method opens a new activity where the user can edit the bill's details
-     * as entered in the database. The details are relayed using an intent
-     * @param id The id of the bill in the database
-     * @param title The title of the bill in the database
-     * @param amount The amount as listed in the database
-     * @param date The due date of the bill as listed in the database
-     * @param notification The notification choice of the bill in the database
-     */
-    private void openEditBill(Integer id, String title, String amount, String date,
-                              String notification){
-        Intent intent = new Intent(this, EditBill.class);
-        intent.putExtra("id", id);
-        intent.putExtra("title", title);
-        intent.putExtra("amount", amount);
-        intent.putExtra("date", date);
-        intent.putExtra("notification", notification);
-        intent.putExtra("viewChoice", billRangeChoice);
-        startActivity(intent);
-    }
-
-    /**
-     * This method allows the user to perform a long click on any item in the database
-     * in order to delete it. This method sets up a long click listener for the listview.
-     * Following a long click, an alert dialog would be displayed if the user choses to
-     * delete a record
-     * @return boolean True if the operation completes successfully
-     */
-    private void allowDeleteFunctionality(){
-        final AlertDialog.Builder deleteAlertDialog = new AlertDialog.Builder(this);
-        billListView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
-            @Override
-            public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
-                Cursor cursor = databaseHelper.getReadableDatabase()
-                        .rawQuery("select * from bills", null);
-                cursor.moveToPosition(position);
-                final Integer calculatedId = cursor.getInt(0);
-
-                deleteAlertDialog.setTitle("Delete Bill");
-                deleteAlertDialog.setMessage("Are you sure you want to delete this Bill?");
-
-                deleteAlertDialog.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
-                    @Override
-                    public void onClick(DialogInterface dialog, int which) {
-                        databaseHelper.deleteEntry(calculatedId);
-
-                        billListAdapter.billList = databaseHelper.getAllBillsInFormat();
-                        billListAdapter.notifyDataSetChanged();
-                    }
-                });
-
-                deleteAlertDialog.setNegativeButton("No", new DialogInterface.OnClickListener() {
-                    @Override
-                    public void onClick(DialogInterface dialog, int which) {
-                        dialog.dismiss();
-                    }
-                });
-
-                deleteAlertDialog.create();
-                deleteAlertDialog.show();
-                return true;
-            }
-        });
-    }
-
-    /**
-     * This method opens a new activity for the user to add a new bill into the local
-     * database. This is a piece of functionality that is embedded into this Activity,
-     * so the user doesn't have to go back to the home screen to add a bill
-     * @param view The view from which this method is called
-     */
-    public void newBill(View view){
-        Intent intent = new Intent(this, AddBill.class);
-        intent.putExtra("viewChoice", billRangeChoice);
-        startActivity(intent);
-    }
-
+package apps.mohit.billit.Activities;
+
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.support.v7.app.AlertDialog;
+import android.support.v7.app.AppCompatActivity;
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.EditText;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import apps.mohit.billit.AsyncDatabase;
+import apps.mohit.billit.BillChange;
+import apps.mohit.billit.BillEntry;
+import apps.mohit.billit.BillFormat;
+import apps.mohit.billit.BillListAdapter;
+import apps.mohit.billit.BillPager;
+import apps.mohit.billit.BillWindows;
+import apps.mohit.billit.DatabaseHelper;
+import apps.mohit.billit.DueDates;
+import apps.mohit.billit.R;
+
+/**
+ * This activity enables the user to view all bills that are included on the
+ * local database. The user has the option to view all the bills that are due
+ * this week, this month, and finally show all bills in the database, and can switch
+ * between them without leaving the list. Typing in the search box shows the bills whose
+ * title matches instead
+ *
+ * @author Mohit Kewalramani
+ * @version 2.0
+ * @since 2017-05-10
+ */
+public class AllBillsList extends AppCompatActivity {
+
+    private static final long SEARCH_DELAY_MS = 300;    // How long typing must pause before a search runs
+    // The view choices in the order they are listed in the view spinner
+    private static final String[] VIEW_CHOICES = {"allBills", "thisMonth", "thisWeek"};
+
+    private String billRangeChoice;           // The date range choice the user wants to see the bills from
+    private DatabaseHelper databaseHelper;    // The database helper class that lets us access the database
+    private AsyncDatabase asyncDatabase;      // Runs the database queries off the UI thread
+    private TextView activityTitle;                // The title of the Activity (Positioned at the top)
+    private BillListAdapter billListAdapter;       // The ListAdapter which displays the bill list for viewing
+    private BillPager billPager;                   // Pages the bills in the chosen range in from the database
+    private RecyclerView billListView;             // The RecyclerView that displays the bills for viewing
+    private int rangeFromDay;                      // The first due date of the chosen range
+    private int rangeToDay;                        // The last due date of the chosen range
+    private final Handler searchHandler = new Handler();   // Runs the search once typing pauses
+    private Runnable pendingSearch;                // The search waiting for typing to pause, if any
+    private EditText searchBox;                    // The box the user types searches into
+    private BillWindows billWindows;               // The bills of every view, until a bill is changed
+    private DatabaseHelper.ChangeListener windowsListener;   // Drops billWindows once a bill or the account changes
+
+    // Tells the user that marking a bill paid or deleting it was not saved
+    private final AsyncDatabase.ErrorCallback writeFailed = new AsyncDatabase.ErrorCallback() {
+        @Override
+        public void onError(Exception error) {
+            Toast.makeText(
+                    getApplicationContext(),
+                    "Your Change Could Not Be Saved, Please Try Again",
+                    Toast.LENGTH_SHORT
+            ).show();
+        }
+    };
+
+    /**
+     * This method is executed once this Activity is initialized
+     * Initializes the global variables and sets up the RecyclerView to ensure that
+     * all the data from the local SQLite database has been populated
+     * @param savedInstanceState the saved instance state
+     */
+    @Override
+    protected void onCreate(final Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_all_bills_list);
+
+        billRangeChoice = getIntent().getStringExtra("viewChoice");
+        databaseHelper = DatabaseHelper.getInstance(this);
+        asyncDatabase = new AsyncDatabase(databaseHelper);
+        activityTitle = (TextView) findViewById(R.id.choiceTitle);
+        searchBox = (EditText) findViewById(R.id.searchBox);
+        billListView = (RecyclerView) findViewById(R.id.allItemsListView);
+        billListView.setLayoutManager(new LinearLayoutManager(this));
+        windowsListener = new DatabaseHelper.ChangeListener() {
+            @Override
+            public void onBillChanged(BillChange change) {
+                billWindows = null;
+                if (change.isReset() && DatabaseHelper.getInstance(AllBillsList.this) != databaseHelper){
+                    // The active account was switched, so the list is read again from its database
+                    recreate();
+                }
+            }
+        };
+        DatabaseHelper.addChangeListener(windowsListener);
+
+        populateDataAndTitle();
+        listenForViewChoices();
+        listenForSearches();
+    }
+
+    /**
+     * Cancels any queries still running for this Activity and stops listening for changes
+     */
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacksAndMessages(null);
+        DatabaseHelper.removeChangeListener(windowsListener);
+        DatabaseHelper.removeChangeListener(billPager);
+        asyncDatabase.cancelAll();
+        super.onDestroy();
+    }
+
+    /**
+     * This method sets up the bill list adapter to page in the data records from
+     * the local database based on the range mentioned by the user. The title is
+     * set straight away and the list is filled once the bills return. Bills added,
+     * edited or deleted while the list is open are applied to it as they are saved
+     */
+    private void populateDataAndTitle(){
+        applyViewChoice(billRangeChoice);
+        showRange();
+    }
+
+    /**
+     * Sets the title and the date range of a view choice
+     * @param viewChoice "thisWeek", "thisMonth", or "allBills"
+     */
+    private void applyViewChoice(String viewChoice){
+        billRangeChoice = viewChoice;
+        int today = DueDates.today();
+        switch (billRangeChoice){
+            case "thisMonth":
+                activityTitle.setText("Bills Due In A Month");
+                rangeFromDay = today;
+                rangeToDay = DueDates.oneMonthFromToday();
+                break;
+            case "thisWeek":
+                activityTitle.setText("Bills Due In A Week");
+                rangeFromDay = today;
+                rangeToDay = today + 7;
+                break;
+            default:
+                activityTitle.setText("All Entered Bills");
+                rangeFromDay = DatabaseHelper.FIRST_DAY;
+                rangeToDay = DatabaseHelper.LAST_DAY;
+                break;
+        }
+    }
+
+    /**
+     * Shows the bills of the chosen range. They are taken from the bills of every view read
+     * earlier if no bill has changed since, and otherwise the bills of every view are read
+     * again in one pass, so switching between the views does not query the database
+     */
+    private void showRange(){
+        showPager(new BillPager(asyncDatabase, rangeFromDay, rangeToDay,
+                BillPager.DEFAULT_PAGE_SIZE, BillPager.DEFAULT_MAX_PAGES));
+        if (billWindows != null){
+            billPager.show(billWindows.get(billRangeChoice));
+            return;
+        }
+        final BillPager pager = billPager;
+        asyncDatabase.read(new AsyncDatabase.Operation<BillWindows>() {
+            @Override
+            public BillWindows run(DatabaseHelper databaseHelper) {
+                return databaseHelper.loadBillWindows();
+            }
+        }, new AsyncDatabase.Callback<BillWindows>() {
+            @Override
+            public void onResult(BillWindows windows) {
+                billWindows = windows;
+                if (pager != billPager){
+                    return;
+                }
+                if (windows != null){
+                    pager.show(windows.get(billRangeChoice));
+                }
+                else{
+                    // Too many bills to hold every view in memory, so page them in
+                    pager.reload();
+                }
+            }
+        });
+    }
+
+    /**
+     * Switches the list between the views picked in the view spinner. While a search is
+     * showing, the view picked is shown once the search box is cleared
+     */
+    private void listenForViewChoices(){
+        Spinner viewChoiceSpinner = (Spinner) findViewById(R.id.viewChoiceSpinner);
+        for (int i = 0; i < VIEW_CHOICES.length; i++){
+            if (VIEW_CHOICES[i].equals(billRangeChoice)){
+                viewChoiceSpinner.setSelection(i);
+            }
+        }
+        viewChoiceSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (VIEW_CHOICES[position].equals(billRangeChoice)){
+                    return;
+                }
+                applyViewChoice(VIEW_CHOICES[position]);
+                if (BillFormat.searchMatch(searchBox.getText().toString()) == null){
+                    showRange();
+                }
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+
+            }
+        });
+    }
+
+    /**
+     * Searches the bill titles as the user types into the search box. The search only runs
+     * once typing has paused for SEARCH_DELAY_MS, so a word typed quickly costs one query
+     * rather than one per letter, and clearing the box goes back to the chosen range
+     */
+    private void listenForSearches(){
+        searchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+
+            }
+
+            @Override
+            public void onTextChanged(CharSequence text, int start, int before, int count) {
+
+            }
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                final String searchText = text.toString();
+                if (pendingSearch != null){
+                    searchHandler.removeCallbacks(pendingSearch);
+                }
+                pendingSearch = new Runnable() {
+                    @Override
+                    public void run() {
+                        pendingSearch = null;
+                        search(searchText);
+                    }
+                };
+                searchHandler.postDelayed(pendingSearch, SEARCH_DELAY_MS);
+            }
+        });
+    }
+
+    /**
+     * Shows the bills whose title matches the search text, or the chosen range if the
+     * search text has no words in it
+     * @param searchText The search text as typed by the user
+     */
+    private void search(String searchText){
+        if (BillFormat.searchMatch(searchText) == null){
+            showRange();
+        }
+        else{
+            showPager(new BillPager(asyncDatabase, searchText,
+                    BillPager.DEFAULT_PAGE_SIZE, BillPager.DEFAULT_MAX_PAGES));
+            billPager.reload();
+        }
+    }
+
+    /**
+     * Replaces the pager the list is showing, and stops the one it replaces from listening
+     * for changes or updating the list. The caller then fills the new pager
+     * @param pager The pager to show
+     */
+    private void showPager(BillPager pager){
+        if (billPager != null){
+            DatabaseHelper.removeChangeListener(billPager);
+            billPager.setListener(null);
+        }
+        billPager = pager;
+        billListAdapter = new BillListAdapter(billPager);
+        allowEditAndDeleteFunctionality();
+        billListView.setAdapter(billListAdapter);
+        DatabaseHelper.addChangeListener(billPager);
+    }
+
+    /**
+     * Allows the user to single click on any record, and be given the choice
+     * to edit a record, or to perform a long click on any record in order to
+     * delete it. This method sets up the click listener of the list adapter
+     */
+    private void allowEditAndDeleteFunctionality(){
+        billListAdapter.setOnBillClickListener(new BillListAdapter.OnBillClickListener() {
+            @Override
+            public void onBillClick(BillEntry entry) {
+                showEditDialog(entry);
+            }
+
+            @Override
+            public void onBillLongClick(BillEntry entry) {
+                showDeleteDialog(entry);
+            }
+        });
+    }
+
+    /**
+     * Asks the user whether they want to edit the clicked bill, and opens the
+     * edit screen if they do. The bill can also be marked paid from here, which takes it
+     * off the list once the change is saved
+     * @param entry The bill that was clicked
+     */
+    private void showEditDialog(final BillEntry entry){
+        AlertDialog.Builder editAlertDialog = new AlertDialog.Builder(this);
+        editAlertDialog.setTitle("Edit Bill");
+        editAlertDialog.setMessage("Do you want to edit this Bill?");
+        editAlertDialog.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                // A recurring bill is edited as a whole, from its first due date
+                int dueEpochDay = entry.getRecurrence() != null ?
+                        entry.getRecurrence().getStartDay() : entry.getDueEpochDay();
+                openEditBill(entry.getId(), entry.getTitle(), entry.getAmountCents(),
+                        dueEpochDay, entry.getLeadDays());
+            }
+        });
+        editAlertDialog.setNegativeButton("No", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+        editAlertDialog.setNeutralButton("Mark Paid", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                final int today = DueDates.today();
+                asyncDatabase.write(new AsyncDatabase.Operation<Boolean>() {
+                    @Override
+                    public Boolean run(DatabaseHelper databaseHelper) {
+                        return databaseHelper.markPaid(entry, today);
+                    }
+                }, null, writeFailed);
+            }
+        });
+        editAlertDialog.create();
+        editAlertDialog.show();
+    }
+
+    /**
+     * This method opens a new activity where the user can edit the bill's details
+     * as entered in the database. The details are relayed using an intent
+     * @param id The id of the bill in the database
+     * @param title The title of the bill in the database
+     * @param amountCents The amount in cents as listed in the database
+     * @param dueEpochDay The due date of the bill as an epoch day
+     * @param leadDays The number of days before due to notify, as listed in the database
+     */
+    private void openEditBill(Integer id, String title, long amountCents, int dueEpochDay,
+                              int leadDays){
+        Intent intent = new Intent(this, EditBill.class);
+        intent.putExtra("id", id);
+        intent.putExtra("title", title);
+        intent.putExtra("amountCents", amountCents);
+        intent.putExtra("dueEpochDay", dueEpochDay);
+        intent.putExtra("leadDays", leadDays);
+        startActivity(intent);
+    }
+
+    /**
+     * Following a long click, an alert dialog is displayed asking the user whether
+     * to delete the bill. The bill is removed from the list once the delete is saved
+     * @param entry The bill that was long clicked
+     */
+    private void showDeleteDialog(final BillEntry entry){
+        AlertDialog.Builder deleteAlertDialog = new AlertDialog.Builder(this);
+        deleteAlertDialog.setTitle("Delete Bill");
+        deleteAlertDialog.setMessage("Are you sure you want to delete this Bill?");
+
+        deleteAlertDialog.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                asyncDatabase.write(new AsyncDatabase.Operation<Integer>() {
+                    @Override
+                    public Integer run(DatabaseHelper databaseHelper) {
+                        return databaseHelper.deleteEntry(entry.getId());
+                    }
+                }, null, writeFailed);
+            }
+        });
+
+        deleteAlertDialog.setNegativeButton("No", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+
+        deleteAlertDialog.create();
+        deleteAlertDialog.show();
+    }
+
+    /**
+     * This method opens a new activity for the user to add a new bill into the local
+     * database. This is a piece of functionality that is embedded into this Activity,
+     * so the user doesn't have to go back to the home screen to add a bill
+     * @param view The view from which this method is called
+     */
+    public void newBill(View view){
+        Intent intent = new Intent(this, AddBill.class);
+        intent.putExtra("viewChoice", billRangeChoice);
+        startActivity(intent);
+    }
+
 }
\ No newline at end of file
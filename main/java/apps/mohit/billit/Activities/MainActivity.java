@@ -1,28 +1,40 @@
 package apps.mohit.billit.Activities;
 
-import android.app.NotificationManager;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
-import android.support.v7.app.NotificationCompat;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import java.text.DateFormat;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+import apps.mohit.billit.AsyncDatabase;
+import apps.mohit.billit.BillAccounts;
 import apps.mohit.billit.BillEntry;
+import apps.mohit.billit.BillFormat;
+import apps.mohit.billit.BillSnapshot;
+import apps.mohit.billit.BillSummary;
 import apps.mohit.billit.DatabaseHelper;
+import apps.mohit.billit.DueDates;
 import apps.mohit.billit.R;
 
 /**
  * This Activity is the launcher activity
  * It is the initial activity that allows the user to arrive at their home screen and make the
- * selection regarding whether to add a new bill, or to view the bills current in their database
+ * selection regarding whether to add a new bill, or to view the bills current in their database.
+ * The account whose bills are shown is picked from the account spinner, which can also add a
+ * new account, and the total of every account is shown once there is more than one
  *
  * @author Mohit Kewalramani
  * @version 2.0
@@ -31,22 +43,35 @@ import apps.mohit.billit.R;
 public class MainActivity extends AppCompatActivity {
 
     // Helper class to access the database
-    private DatabaseHelper databaseHelper = new DatabaseHelper(this);
+    private DatabaseHelper databaseHelper;
+    private AsyncDatabase asyncDatabase;      // Runs the database queries off the UI thread
 
     /**
      * This method is initialized when the Activity starts up. Today's date is shown on the
      * screen for the User, the number of bills in the database is also posted to the home
-     * screen for the User's reference, and any notifications to be delivered are done so
+     * screen for the User's reference. Bill reminders are delivered by the ReminderScheduler
+     * whether or not this Activity is opened
      * @param savedInstanceState The saved instance state
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        databaseHelper = DatabaseHelper.getInstance(this);
+        asyncDatabase = new AsyncDatabase(databaseHelper);
 
         populateTodaysDate();
         populateSummarySentence();
-        relayNotifications();
+        populateAccounts();
+    }
+
+    /**
+     * Cancels any queries still running for this Activity
+     */
+    @Override
+    protected void onDestroy() {
+        asyncDatabase.cancelAll();
+        super.onDestroy();
     }
 
     /**
@@ -60,113 +85,219 @@ public class MainActivity extends AppCompatActivity {
 
     /**
      * This is the helper method that populates the summary sentence which relays the total
-     * number of bills currently in the database
+     * number of bills currently in the database, along with the number and total amount of
+     * the bills that are overdue, due this week and due this month, and the bills reminded
+     * of today. The figures are worked out on the reader thread from the snapshot of the
+     * bills written after the last change, so they are shown without opening the database
+     * and without reading the file on the UI thread. Without a usable snapshot the summary is
+     * queried from the database instead, and the snapshot is written for the next start and
+     * read for today's reminders
      */
     private void populateSummarySentence(){
-        TextView countMessage = (TextView)findViewById(R.id.countData);
-        SQLiteDatabase readableDatabase = databaseHelper.getReadableDatabase();
-        Cursor cursor = readableDatabase.rawQuery("select count(*) from bills", null);
-        cursor.moveToFirst();
-        String billCount = cursor.getString(0);
-        countMessage.setText(String.format("You Have %s Bills On Your List", billCount));
-    }
-
-    /**
-     * This is a helper method that relays any notifications to the user based on the
-     * notification choice that was set once the bill was created/updated. It cycles
-     * through all bills and relays the notifications for the relevant ones
-     */
-    private void relayNotifications() {
-        for (BillEntry entry : databaseHelper.getAllBillsInFormat()) {
-            String notificationPreference = entry.getNotification();
-            switch (notificationPreference) {
-                case "No Notifications":
-                    break;
-                case "3 Days Before Due":
-                    dateComparison(todayDateAddedForComparison(3), entry.getDate(),
-                            entry.getTitle(), entry.getAmount());
-                    break;
-                case "5 Days Before Due":
-                    dateComparison(todayDateAddedForComparison(5), entry.getDate(),
-                            entry.getTitle(), entry.getAmount());
-                    break;
-                case "1 Week Before Due":
-                    dateComparison(todayDateAddedForComparison(7), entry.getDate(),
-                            entry.getTitle(), entry.getAmount());
-                    break;
-                case "2 Weeks Before Due":
-                    dateComparison(todayDateAddedForComparison(14), entry.getDate(),
-                            entry.getTitle(), entry.getAmount());
-                    break;
+        asyncDatabase.read(new AsyncDatabase.Operation<HomeFigures>() {
+            @Override
+            public HomeFigures run(DatabaseHelper databaseHelper) {
+                int today = DueDates.today();
+                HomeFigures figures = new HomeFigures();
+                BillSnapshot snapshot = databaseHelper.readSnapshot();
+                if (snapshot != null){
+                    figures.summary = snapshot.summarize(today, DueDates.oneMonthFromToday());
+                }
+                else{
+                    figures.summary = databaseHelper.getSummary();
+                    if (databaseHelper.writeSnapshot()){
+                        snapshot = databaseHelper.readSnapshot();
+                    }
+                }
+                if (snapshot != null){
+                    figures.reminders.addAll(snapshot.remindersOn(today));
+                }
+                return figures;
             }
-        }
+        }, new AsyncDatabase.Callback<HomeFigures>() {
+            @Override
+            public void onResult(HomeFigures figures) {
+                showSummary(figures.summary);
+                showReminders(figures.reminders);
+            }
+        });
     }
 
     /**
-     * This method compares today's date amended with the due date currently set for the bill
-     * in the database. If they are equal, a notification is relayed
-     * @param todayDateAmended Today's date forwarded by the number of days indicated in the
-     *                         notification choice selected on the bill
-     * @param dateInTable The due date in the table
-     * @param title The title of the bill as listed in the database
-     * @param amount The bill amount due as listed in the database
+     * Lists every account in the account spinner, with the active one selected, and shows
+     * the total of every account under the summary. The accounts are found by listing the
+     * database directory, so they are read off the UI thread
      */
-    private void dateComparison(String todayDateAmended, String dateInTable,
-                                String title, String amount){
-        if (todayDateAmended.equals(dateInTable)){
-            createNotification(title, amount, dateInTable);
-        }
+    private void populateAccounts(){
+        final Context appContext = getApplicationContext();
+        asyncDatabase.read(new AsyncDatabase.Operation<List<String>>() {
+            @Override
+            public List<String> run(DatabaseHelper databaseHelper) {
+                return DatabaseHelper.getAccounts(appContext);
+            }
+        }, new AsyncDatabase.Callback<List<String>>() {
+            @Override
+            public void onResult(List<String> accounts) {
+                showAccounts(accounts);
+                populateAccountsTotal(accounts);
+            }
+        });
     }
 
     /**
-     * This method is the helper method that adds today's date by the number of days
-     * that the user requested to see a notification for. (Prior to the bill due date).
-     * If today's amended date equals the due date in the database, a notification is relayed
-     * to the user
-     * @param choice The number of days prior a notification was requested
-     * @return str The string value of today's date amended
+     * Fills the account spinner with the given accounts, followed by the choice to add an
+     * account. Picking another account switches to it
+     * @param accounts The names of the accounts, the active one included
      */
-    private String todayDateAddedForComparison(int choice){
-        Integer current_year, current_month, current_day;
-        String year_string, month_string, day_string;
+    private void showAccounts(final List<String> accounts){
+        final Spinner accountSpinner = (Spinner) findViewById(R.id.accountSpinner);
+        List<String> choices = new ArrayList<>(accounts);
+        choices.add(getString(R.string.add_account));
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, choices);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        accountSpinner.setAdapter(adapter);
+        final int active = accounts.indexOf(databaseHelper.getAccount());
+        accountSpinner.setSelection(active, false);
+        accountSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position == active){
+                    return;
+                }
+                if (position == accounts.size()){
+                    showAddAccountDialog(accountSpinner, active);
+                    return;
+                }
+                switchAccount(accounts.get(position));
+            }
 
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_MONTH, choice);
-        current_year = calendar.get(Calendar.YEAR);
-        current_month = calendar.get(Calendar.MONTH) + 1;
-        current_day = calendar.get(Calendar.DAY_OF_MONTH);
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
 
-        year_string = String.valueOf(current_year);
-        if (current_month < 10){
-            month_string = String.format("0%s", current_month);
-        }
-        else{
-            month_string = String.valueOf(current_month);
-        }
-        if (current_day < 10){
-            day_string = String.format("0%s", current_day);
-        }
-        else{
-            day_string = String.valueOf(current_day);
+            }
+        });
+    }
+
+    /**
+     * Asks the user for the name of a new account and switches to it. The spinner goes back
+     * to the active account once the dialog is closed, whichever way it is closed
+     * @param accountSpinner The account spinner
+     * @param active The position of the active account in the spinner
+     */
+    private void showAddAccountDialog(final Spinner accountSpinner, final int active){
+        final EditText nameBox = new EditText(this);
+        nameBox.setHint(R.string.account_name_hint);
+        nameBox.setSingleLine(true);
+        AlertDialog.Builder addAccountDialog = new AlertDialog.Builder(this);
+        addAccountDialog.setTitle(R.string.add_account_heading);
+        addAccountDialog.setView(nameBox);
+        addAccountDialog.setPositiveButton("Add", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                String account = nameBox.getText().toString().trim();
+                if (!BillAccounts.isValid(account)){
+                    Toast.makeText(
+                            getApplicationContext(),
+                            "Account Names Can Only Use Letters, Digits, '_' And '-'",
+                            Toast.LENGTH_SHORT
+                    ).show();
+                    return;
+                }
+                switchAccount(account);
+            }
+        });
+        addAccountDialog.setNegativeButton("Cancel", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+        addAccountDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            @Override
+            public void onDismiss(DialogInterface dialog) {
+                accountSpinner.setSelection(active);
+            }
+        });
+        addAccountDialog.create();
+        addAccountDialog.show();
+    }
+
+    /**
+     * Makes the given account the active one and shows the home screen again for it. Every
+     * screen still open is sent a reset and reloads from the new account
+     * @param account The name of the account
+     */
+    private void switchAccount(String account){
+        DatabaseHelper.switchAccount(this, account);
+        recreate();
+    }
+
+    /**
+     * Shows the number of bills and the total amount due over every account, read from
+     * their databases in parallel. Nothing is shown while there is only one account
+     * @param accounts The names of the accounts
+     */
+    private void populateAccountsTotal(final List<String> accounts){
+        if (accounts.size() < 2){
+            return;
         }
-        return String.format("%s-%s-%s", year_string, month_string, day_string);
+        final Context appContext = getApplicationContext();
+        asyncDatabase.read(new AsyncDatabase.Operation<BillSummary>() {
+            @Override
+            public BillSummary run(DatabaseHelper databaseHelper) {
+                return BillAccounts.total(
+                        DatabaseHelper.summarizeAccounts(appContext, accounts).values());
+            }
+        }, new AsyncDatabase.Callback<BillSummary>() {
+            @Override
+            public void onResult(BillSummary total) {
+                TextView accountsTotal = (TextView) findViewById(R.id.accountsTotal);
+                accountsTotal.setText(String.format("All Accounts: %d Bills ($%s)",
+                        total.allCount, BillFormat.formatCents(total.allCents)));
+                accountsTotal.setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    /**
+     * Writes the counts and totals of the summary onto the home screen
+     * @param summary The counts and totals of each range
+     */
+    private void showSummary(BillSummary summary){
+        TextView countMessage = (TextView)findViewById(R.id.countData);
+        TextView summaryMessage = (TextView)findViewById(R.id.summaryData);
+        countMessage.setText(String.format("You Have %s Bills On Your List",
+                summary.allCount));
+        summaryMessage.setText(String.format(
+                "Overdue: %d ($%s)\nDue This Week: %d ($%s)\n" +
+                        "Due This Month: %d ($%s)\nTotal: $%s",
+                summary.overdueCount, BillFormat.formatCents(summary.overdueCents),
+                summary.thisWeekCount, BillFormat.formatCents(summary.thisWeekCents),
+                summary.thisMonthCount, BillFormat.formatCents(summary.thisMonthCents),
+                BillFormat.formatCents(summary.allCents)));
     }
 
     /**
-     * This helper method creates the notification and pushes it to the user
-     * @param title The title of the bill
-     * @param amount The amount of the bill
-     * @param date The due date of the bill
+     * Lists the titles of the bills reminded of today under the summary, or hides the list
+     * when there are none
+     * @param reminders The bills whose reminder falls on today
      */
-    private void createNotification(String title, String amount, String date){
-        NotificationCompat.Builder mBuilder = new NotificationCompat.Builder(this);
-        mBuilder.setSmallIcon(R.mipmap.app_logo);
-        mBuilder.setContentTitle("You Have A Bill Due");
-        mBuilder.setContentText(String.format("Amount : $%s for %s by %s", amount, title, date));
-        mBuilder.setAutoCancel(true);
-        NotificationManager notificationManager =
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        notificationManager.notify(0, mBuilder.build());
+    private void showReminders(List<BillEntry> reminders){
+        TextView remindersMessage = (TextView) findViewById(R.id.remindersData);
+        if (reminders.isEmpty()){
+            remindersMessage.setVisibility(View.GONE);
+            return;
+        }
+        StringBuilder titles = new StringBuilder();
+        for (BillEntry entry : reminders){
+            if (titles.length() > 0){
+                titles.append(", ");
+            }
+            titles.append(entry.getTitle());
+        }
+        remindersMessage.setText(String.format("Reminders Today: %s", titles));
+        remindersMessage.setVisibility(View.VISIBLE);
     }
 
     /**
@@ -214,4 +345,13 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    /**
+     * The summary and today's reminders shown on the home screen, read together so the
+     * snapshot is only mapped once
+     */
+    private static class HomeFigures {
+        BillSummary summary;
+        final List<BillEntry> reminders = new ArrayList<>();
+    }
+
 }
\ No newline at end of file
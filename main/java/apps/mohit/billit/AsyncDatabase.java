@@ -0,0 +1,234 @@
+package apps.mohit.billit;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * This class runs DatabaseHelper operations off the UI thread. Writes are queued on a single
+ * writer thread so they apply in the order they were requested, reads run on a small pool of
+ * reader threads, and results are delivered to callbacks on the main looper.
+ * Each Activity owns one instance and calls cancelAll() when it is destroyed, after which
+ * pending reads are dropped and no further callbacks are delivered. Writes that were already
+ * requested still complete so that no user data is lost. An operation that fails, e.g. a
+ * write to a full disk, is handed to an error callback on the main looper, or logged if it
+ * has none, so a failed write never takes the app down
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class AsyncDatabase {
+
+    private static final int READER_THREADS = 2;     // The number of threads serving reads
+    private static final String TAG = "AsyncDatabase";   // The tag of the failures logged
+
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor();
+    private static final ExecutorService READERS = Executors.newFixedThreadPool(READER_THREADS);
+    private static final Handler MAIN_THREAD = new Handler(Looper.getMainLooper());
+
+    private final DatabaseHelper databaseHelper;     // The helper the operations are run against
+    private final Set<Future<?>> pendingReads =
+            Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+    private volatile boolean cancelled;              // True once cancelAll() has been called
+
+    /**
+     * An operation to run against the database on a background thread
+     * @param <T> The type of the operation's result
+     */
+    public interface Operation<T> {
+        T run(DatabaseHelper databaseHelper);
+    }
+
+    /**
+     * Receives the result of an operation on the main thread
+     * @param <T> The type of the operation's result
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /**
+     * Receives the failure of an operation on the main thread
+     */
+    public interface ErrorCallback {
+        void onError(Exception error);
+    }
+
+    /**
+     * The constructor of the asynchronous database
+     * @param databaseHelper The helper the operations are run against
+     */
+    public AsyncDatabase(DatabaseHelper databaseHelper){
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Runs a read on the reader pool. A failure is logged
+     * @param operation The read to run
+     * @param callback Receives the result on the main thread, may be null
+     * @return Future The pending read, which can be cancelled
+     */
+    public <T> Future<T> read(Operation<T> operation, Callback<T> callback){
+        return read(operation, callback, null);
+    }
+
+    /**
+     * Runs a read on the reader pool
+     * @param operation The read to run
+     * @param callback Receives the result on the main thread, may be null
+     * @param errorCallback Receives the failure on the main thread, or null to log it
+     * @return Future The pending read, which can be cancelled
+     */
+    public <T> Future<T> read(Operation<T> operation, Callback<T> callback,
+                              ErrorCallback errorCallback){
+        CallbackTask<T> task = new CallbackTask<>(operation, callback, errorCallback, true);
+        pendingReads.add(task);
+        if (cancelled){
+            task.cancel(false);
+        }
+        else{
+            READERS.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * Queues a write on the single writer thread. A failure is logged
+     * @param operation The write to run
+     * @param callback Receives the result on the main thread, may be null
+     * @return Future The pending write
+     */
+    public <T> Future<T> write(Operation<T> operation, Callback<T> callback){
+        return write(operation, callback, null);
+    }
+
+    /**
+     * Queues a write on the single writer thread
+     * @param operation The write to run
+     * @param callback Receives the result on the main thread, may be null
+     * @param errorCallback Receives the failure on the main thread, or null to log it
+     * @return Future The pending write
+     */
+    public <T> Future<T> write(Operation<T> operation, Callback<T> callback,
+                               ErrorCallback errorCallback){
+        CallbackTask<T> task = new CallbackTask<>(operation, callback, errorCallback, false);
+        WRITER.execute(task);
+        return task;
+    }
+
+    /**
+     * Cancels every pending read and stops any further callbacks from being delivered.
+     * This is called from the owning Activity's onDestroy
+     */
+    public void cancelAll(){
+        cancelled = true;
+        for (Future<?> read : pendingReads){
+            read.cancel(false);
+        }
+        pendingReads.clear();
+    }
+
+    /**
+     * The task that runs an operation and posts its result back to the main thread
+     * @param <T> The type of the operation's result
+     */
+    private class CallbackTask<T> extends FutureTask<T> {
+
+        private final Callback<T> callback;             // Receives the result, may be null
+        private final ErrorCallback errorCallback;      // Receives the failure, may be null
+        private final boolean isRead;                   // True if the task is tracked as a read
+
+        CallbackTask(final Operation<T> operation, Callback<T> callback,
+                     ErrorCallback errorCallback, boolean isRead){
+            super(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return operation.run(databaseHelper);
+                }
+            });
+            this.callback = callback;
+            this.errorCallback = errorCallback;
+            this.isRead = isRead;
+        }
+
+        /**
+         * Called on the background thread once the operation finishes. The result, or the
+         * failure, is handed to the main thread unless the task or its owner was cancelled.
+         * Only an Error, such as running out of memory, is still thrown on the main thread
+         */
+        @Override
+        protected void done() {
+            if (isRead){
+                pendingReads.remove(this);
+            }
+            if (isCancelled()){
+                return;
+            }
+            final T result;
+            try {
+                result = get();
+            }
+            catch (InterruptedException e){
+                return;
+            }
+            catch (ExecutionException e){
+                fail(e.getCause());
+                return;
+            }
+            if (callback == null){
+                return;
+            }
+            MAIN_THREAD.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled){
+                        callback.onResult(result);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Hands the failure of the operation to the error callback on the main thread
+         * @param cause What the operation threw
+         */
+        private void fail(final Throwable cause){
+            if (cause instanceof Error){
+                MAIN_THREAD.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        throw new RuntimeException("Database operation failed", cause);
+                    }
+                });
+                return;
+            }
+            if (errorCallback == null){
+                Log.e(TAG, "Database operation failed", cause);
+                return;
+            }
+            MAIN_THREAD.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled){
+                        Log.e(TAG, "Database operation failed", cause);
+                    }
+                    else{
+                        errorCallback.onError((Exception) cause);
+                    }
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package apps.mohit.billit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the outcome of inserting a batch of bills: how many were inserted, and
+ * which ones could not be inserted and why
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class BatchInsertResult {
+
+    public int insertedCount;                                  // The number of bills inserted
+    public final List<Failure> failures = new ArrayList<>();   // The bills that were skipped
+
+    /**
+     * A bill of the batch that could not be inserted
+     */
+    public static class Failure {
+
+        public final int row;             // The position of the bill in the batch, from 0
+        public final BillEntry entry;     // The bill that was skipped, may be null
+        public final String reason;       // Why the bill could not be inserted
+
+        Failure(int row, BillEntry entry, String reason){
+            this.row = row;
+            this.entry = entry;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Records a bill that could not be inserted
+     * @param row The position of the bill in the batch, from 0
+     * @param entry The bill that was skipped
+     * @param reason Why the bill could not be inserted
+     */
+    void addFailure(int row, BillEntry entry, String reason){
+        failures.add(new Failure(row, entry, reason));
+    }
+
+}
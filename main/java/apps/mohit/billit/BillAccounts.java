@@ -0,0 +1,124 @@
+package apps.mohit.billit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class names the database file of each account. Every account, e.g. each household
+ * whose bills are kept on the device, has a database of its own rather than a share of one
+ * bills table, so its queries, indexes, cache and snapshot only ever cover its own bills.
+ * The default account keeps the database the app has always used, so bills saved before
+ * accounts existed stay where they are
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillAccounts {
+
+    public static final String DEFAULT_ACCOUNT = "default";          // The account of the bills saved before accounts existed
+    public static final int MAX_NAME_LENGTH = 40;                    // The longest account name allowed
+
+    static final String DEFAULT_DATABASE_NAME = "BillList.db";       // The database of the default account
+    private static final String DATABASE_PREFIX = "BillList-";       // Starts the database name of every other account
+    private static final String DATABASE_SUFFIX = ".db";             // Ends the database name of every other account
+
+    private BillAccounts(){
+
+    }
+
+    /**
+     * Returns whether the given name can be used as an account. Names are made of letters,
+     * digits, '_' and '-' only, since they become part of a file name
+     * @param account The name of the account
+     * @return boolean True if the name is valid
+     */
+    public static boolean isValid(String account){
+        if (account == null || account.isEmpty() || account.length() > MAX_NAME_LENGTH){
+            return false;
+        }
+        for (int i = 0; i < account.length(); i++){
+            char c = account.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') &&
+                    c != '_' && c != '-'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of the database file that holds the bills of the given account
+     * @param account The name of the account
+     * @return String The database name, e.g. "BillList-home.db"
+     * @throws IllegalArgumentException if the account name is not valid
+     */
+    public static String databaseName(String account){
+        if (!isValid(account)){
+            throw new IllegalArgumentException("Invalid account name: " + account);
+        }
+        if (DEFAULT_ACCOUNT.equals(account)){
+            return DEFAULT_DATABASE_NAME;
+        }
+        return DATABASE_PREFIX + account + DATABASE_SUFFIX;
+    }
+
+    /**
+     * Returns the account whose bills the given database file holds
+     * @param databaseName The name of a database file, as listed by Context.databaseList
+     * @return String The name of the account, or null if the file is not a bills database
+     */
+    public static String accountOf(String databaseName){
+        if (DEFAULT_DATABASE_NAME.equals(databaseName)){
+            return DEFAULT_ACCOUNT;
+        }
+        if (databaseName == null || !databaseName.startsWith(DATABASE_PREFIX) ||
+                !databaseName.endsWith(DATABASE_SUFFIX)){
+            return null;
+        }
+        String account = databaseName.substring(DATABASE_PREFIX.length(),
+                databaseName.length() - DATABASE_SUFFIX.length());
+        return isValid(account) && !DEFAULT_ACCOUNT.equals(account) ? account : null;
+    }
+
+    /**
+     * Returns the accounts of the given database files, in alphabetical order. Files that
+     * are not bills databases, such as the journal and snapshot beside each database, are
+     * left out
+     * @param databaseNames The names of the database files, as listed by Context.databaseList
+     * @return List<String> The names of the accounts, each once
+     */
+    public static List<String> accountsOf(String[] databaseNames){
+        List<String> accounts = new ArrayList<>();
+        for (String databaseName : databaseNames){
+            String account = accountOf(databaseName);
+            if (account != null && !accounts.contains(account)){
+                accounts.add(account);
+            }
+        }
+        Collections.sort(accounts);
+        return accounts;
+    }
+
+    /**
+     * Returns the sum of the given summaries, e.g. the figures of every account together
+     * @param summaries The summaries to add up
+     * @return BillSummary The counts and totals of each range over every summary
+     */
+    public static BillSummary total(Iterable<BillSummary> summaries){
+        BillSummary total = new BillSummary();
+        for (BillSummary summary : summaries){
+            total.overdueCount += summary.overdueCount;
+            total.overdueCents += summary.overdueCents;
+            total.thisWeekCount += summary.thisWeekCount;
+            total.thisWeekCents += summary.thisWeekCents;
+            total.thisMonthCount += summary.thisMonthCount;
+            total.thisMonthCents += summary.thisMonthCents;
+            total.allCount += summary.allCount;
+            total.allCents += summary.allCents;
+        }
+        return total;
+    }
+
+}
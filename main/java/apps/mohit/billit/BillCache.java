@@ -0,0 +1,296 @@
+package apps.mohit.billit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class keeps the bills of one due date window in memory, sorted by due date and id,
+ * so that date range queries falling inside the window are answered without SQLite. The
+ * window always holds every bill due within it. DatabaseHelper loads a window the first time
+ * a range is asked for, and writes every insert, update and delete through to it once they
+ * are committed, replacing any copy of the bill a load made while the write committed. The
+ * cache is shared by every DatabaseHelper of the same database file. When the window holds
+ * more bills than the cap, the days furthest from today are evicted from whichever end of
+ * the window they are on
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillCache {
+
+    public static final int DEFAULT_MAX_BILLS = 10000;     // Roughly 1MB of bills with short titles
+
+    // The caches of each database file, keyed by its path
+    private static final Map<String, BillCache> CACHES = new HashMap<>();
+
+    private final ArrayList<BillEntry> bills = new ArrayList<>();   // The bills of the window, by due date and id
+    private int windowFrom = 1;            // The first due date of the window, as an epoch day
+    private int windowTo = 0;              // The last due date of the window; before windowFrom while empty
+    private int maxBills = DEFAULT_MAX_BILLS;
+    private long version;                  // Counts the writes, so a load that raced a write is dropped
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private BillCache(){
+
+    }
+
+    /**
+     * Returns the cache of the given database file, creating it the first time
+     * @param databasePath The path of the database file
+     * @return BillCache The cache shared by every helper of that file
+     */
+    static synchronized BillCache forDatabase(String databasePath){
+        BillCache cache = CACHES.get(databasePath);
+        if (cache == null){
+            cache = new BillCache();
+            CACHES.put(databasePath, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the number of range queries answered from memory
+     * @return long The number of hits
+     */
+    public long getHitCount(){
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of range queries that had to go to the database
+     * @return long The number of misses
+     */
+    public long getMissCount(){
+        return misses.get();
+    }
+
+    public synchronized int getMaxBills(){
+        return maxBills;
+    }
+
+    /**
+     * Sets the largest number of bills the cache holds, evicting the days furthest from
+     * today straight away if it already holds more
+     * @param maxBills The largest number of bills to hold
+     */
+    public synchronized void setMaxBills(int maxBills){
+        this.maxBills = maxBills;
+        trim();
+    }
+
+    /**
+     * Returns the bills due between the two days, in (date, id) order, skipping the given
+     * number and returning at most limit of them
+     * @return ArrayList<BillEntry> The bills, or null if the range is not in the window
+     */
+    synchronized ArrayList<BillEntry> getRange(int fromDay, int toDay, int limit, int offset){
+        ArrayList<BillEntry> range = peekRange(fromDay, toDay, limit, offset);
+        (range == null ? misses : hits).incrementAndGet();
+        return range;
+    }
+
+    /**
+     * Returns the bills due between the two days that come after the given bill in
+     * (date, id) order, at most limit of them
+     * @return ArrayList<BillEntry> The bills, or null if the range is not in the window
+     */
+    synchronized ArrayList<BillEntry> getRangeAfter(int fromDay, int toDay, int afterDay,
+                                                    int afterId, int limit){
+        if (!covers(fromDay, toDay)){
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        int start = Math.max(search(fromDay, Integer.MIN_VALUE, true),
+                search(afterDay, afterId, false));
+        return copy(start, search(toDay, Integer.MAX_VALUE, false), limit);
+    }
+
+    /**
+     * Returns the number of bills due between the two days
+     * @return int The number of bills, or -1 if the range is not in the window
+     */
+    synchronized int count(int fromDay, int toDay){
+        if (!covers(fromDay, toDay)){
+            misses.incrementAndGet();
+            return -1;
+        }
+        hits.incrementAndGet();
+        return Math.max(0, search(toDay, Integer.MAX_VALUE, false) -
+                search(fromDay, Integer.MIN_VALUE, true));
+    }
+
+    /**
+     * Returns the bills of a range like getRange, without counting a hit or a miss
+     */
+    synchronized ArrayList<BillEntry> peekRange(int fromDay, int toDay, int limit, int offset){
+        if (!covers(fromDay, toDay)){
+            return null;
+        }
+        int start = search(fromDay, Integer.MIN_VALUE, true) + offset;
+        return copy(start, search(toDay, Integer.MAX_VALUE, false), limit);
+    }
+
+    /**
+     * Returns the number of writes made so far. A loader reads this before querying the
+     * database and hands it back to install
+     * @return long The write count
+     */
+    synchronized long version(){
+        return version;
+    }
+
+    /**
+     * Replaces the window with the bills loaded from the database, unless a write has been
+     * made since the load started
+     * @param fromDay The first due date of the loaded range
+     * @param toDay The last due date of the loaded range
+     * @param loaded Every bill due in the range, in (date, id) order
+     * @param loadVersion The version read before the range was loaded
+     * @return boolean True if the window now holds the range
+     */
+    synchronized boolean install(int fromDay, int toDay, List<BillEntry> loaded, long loadVersion){
+        if (loadVersion != version || loaded.size() > maxBills){
+            return false;
+        }
+        bills.clear();
+        bills.addAll(loaded);
+        windowFrom = fromDay;
+        windowTo = toDay;
+        return true;
+    }
+
+    /**
+     * Drops any load in progress, as a write is about to commit. DatabaseHelper calls this
+     * before ending the write's transaction, so a load that could have read the database
+     * either side of the commit is never installed
+     */
+    synchronized void beginWrite(){
+        version++;
+    }
+
+    /**
+     * Writes a committed insert, or the new side of an update, through to the window. Any
+     * bill with the same id is replaced rather than kept beside it, since a window loaded
+     * just after the commit already holds the bill as it is now stored
+     * @param entry The bill as it is now stored
+     */
+    synchronized void put(BillEntry entry){
+        version++;
+        removeId(entry);
+        int day = entry.getDueEpochDay();
+        if (day < windowFrom || day > windowTo){
+            return;
+        }
+        bills.add(search(day, entry.getId(), true), entry);
+        trim();
+    }
+
+    /**
+     * Writes a committed delete, or the old side of an update, through to the window
+     * @param entry The bill as it was stored
+     */
+    synchronized void remove(BillEntry entry){
+        version++;
+        removeId(entry);
+    }
+
+    /**
+     * Empties the window, after a write whose bills are not known one by one
+     */
+    synchronized void invalidate(){
+        version++;
+        bills.clear();
+        windowFrom = 1;
+        windowTo = 0;
+    }
+
+    /**
+     * Removes the bill with the id of the given one, looking first where the given one sorts
+     * and then through the whole window, since the stored bill may be due on another day
+     */
+    private void removeId(BillEntry entry){
+        int index = search(entry.getDueEpochDay(), entry.getId(), true);
+        if (index < bills.size() && bills.get(index).getId() == entry.getId()){
+            bills.remove(index);
+            return;
+        }
+        for (int i = 0; i < bills.size(); i++){
+            if (bills.get(i).getId() == entry.getId()){
+                bills.remove(i);
+                return;
+            }
+        }
+    }
+
+    private boolean covers(int fromDay, int toDay){
+        return windowFrom <= windowTo && windowFrom <= fromDay && toDay <= windowTo;
+    }
+
+    /**
+     * Returns the index of the first bill at or after (or strictly after) the given
+     * due date and id, in (date, id) order
+     */
+    private int search(int day, int id, boolean inclusive){
+        int low = 0;
+        int high = bills.size();
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            BillEntry entry = bills.get(middle);
+            int compare = entry.getDueEpochDay() != day ?
+                    (entry.getDueEpochDay() < day ? -1 : 1) :
+                    (entry.getId() != id ? (entry.getId() < id ? -1 : 1) : 0);
+            if (compare < 0 || (compare == 0 && !inclusive)){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ArrayList<BillEntry> copy(int start, int end, int limit){
+        if (limit >= 0){
+            end = (int) Math.min(end, (long) start + limit);
+        }
+        return start >= end ? new ArrayList<BillEntry>() :
+                new ArrayList<>(bills.subList(start, end));
+    }
+
+    /**
+     * Evicts whole days from the end of the window furthest from today until the window
+     * holds no more than maxBills bills. The window shrinks with them, so it still holds
+     * every bill due within it
+     */
+    private void trim(){
+        if (bills.size() <= maxBills){
+            return;
+        }
+        int today = DueDates.today();
+        while (bills.size() > maxBills){
+            int firstDay = bills.get(0).getDueEpochDay();
+            int lastDay = bills.get(bills.size() - 1).getDueEpochDay();
+            if ((long) lastDay - today >= (long) today - firstDay){
+                while (!bills.isEmpty() && bills.get(bills.size() - 1).getDueEpochDay() == lastDay){
+                    bills.remove(bills.size() - 1);
+                }
+                windowTo = lastDay - 1;
+            }
+            else{
+                int removed = search(firstDay, Integer.MAX_VALUE, false);
+                bills.subList(0, removed).clear();
+                windowFrom = firstDay + 1;
+            }
+        }
+        if (windowFrom > windowTo){
+            invalidate();
+        }
+    }
+
+}
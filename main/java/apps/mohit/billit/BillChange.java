@@ -0,0 +1,52 @@
+package apps.mohit.billit;
+
+/**
+ * This class describes a single change made to the bills table. It holds the bill as it was
+ * before the change and as it is after, so a listener can work out where the bill has left
+ * and where it now belongs without querying the database again
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class BillChange {
+
+    // The change sent when every bill may have changed, e.g. after all bills are deleted
+    public static final BillChange RESET = new BillChange(null, null);
+
+    private final BillEntry before;     // The bill before the change, null if it was inserted
+    private final BillEntry after;      // The bill after the change, null if it was deleted
+
+    public BillChange(BillEntry before, BillEntry after){
+        this.before = before;
+        this.after = after;
+    }
+
+    public BillEntry getBefore(){
+        return before;
+    }
+
+    public BillEntry getAfter(){
+        return after;
+    }
+
+    /**
+     * Returns the database id of the changed bill
+     * @return int The id of the bill, or -1 for a reset
+     */
+    public int getId(){
+        if (after != null){
+            return after.getId();
+        }
+        return before != null ? before.getId() : -1;
+    }
+
+    /**
+     * Returns whether every bill may have changed, in which case listeners reload
+     * @return boolean True if this is a reset
+     */
+    public boolean isReset(){
+        return before == null && after == null;
+    }
+
+}
@@ -0,0 +1,284 @@
+package apps.mohit.billit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads and writes bills as CSV, one record per bill under a header record of
+ * name,amount,date,notification,repeat,repeat_every,repeat_until,repeat_count,paid_through.
+ * The amount is written in dollars, e.g. 12.50, the date as yyyy-MM-dd and the notification
+ * as the number of days before due: 0 for none, or one of the lead times the app offers. The
+ * repeat columns are left empty for a bill that does not repeat; otherwise repeat is days,
+ * weeks or months, repeat_until and paid_through are dates and repeat_count is 0 when the
+ * occurrences are not counted. Fields are quoted as in RFC 4180 when they hold a comma, a
+ * quote or a line break. Records are read and written one at a time, so files of any size
+ * are handled in a fixed amount of memory
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillCsv {
+
+    static final String HEADER =
+            "name,amount,date,notification,repeat,repeat_every,repeat_until,repeat_count,paid_through";
+    static final int MAX_FIELD_LENGTH = 64 * 1024;       // The longest field read before the file is rejected
+
+    private BillCsv(){
+
+    }
+
+    /**
+     * Returns a source reading the bills from CSV text. The columns may come in any order
+     * and the notification and repeat columns may be left out
+     * @param in The CSV text
+     * @return BillSource The bills of the CSV text
+     * @throws IOException if the header record cannot be read or lacks a column
+     */
+    public static BillSource source(Reader in) throws IOException {
+        return new CsvSource(in);
+    }
+
+    /**
+     * Returns a sink writing bills as CSV text, starting with the header record
+     * @param out Receives the CSV text
+     * @return BillSink The sink writing to the text
+     * @throws IOException if the header record cannot be written
+     */
+    public static BillSink sink(Writer out) throws IOException {
+        return new CsvSink(out);
+    }
+
+    /**
+     * Reads the records of CSV text one at a time into a reused list of fields
+     */
+    private static class CsvSource implements BillSource {
+
+        private final BufferedReader in;
+        private final List<String> fields = new ArrayList<>();     // The fields of the current record
+        private final StringBuilder field = new StringBuilder();   // The field being read
+        private int nameColumn = -1;
+        private int amountColumn = -1;
+        private int dateColumn = -1;
+        private int notificationColumn = -1;
+        private int repeatColumn = -1;
+        private int repeatEveryColumn = -1;
+        private int repeatUntilColumn = -1;
+        private int repeatCountColumn = -1;
+        private int paidThroughColumn = -1;
+        private int columns;                       // The number of fields a record needs
+
+        CsvSource(Reader in) throws IOException {
+            this.in = new BufferedReader(in);
+            if (!readRecord()){
+                throw new IOException("The CSV file is empty");
+            }
+            for (int i = 0; i < fields.size(); i++){
+                switch (fields.get(i).trim()){
+                    case "name":
+                        nameColumn = i;
+                        break;
+                    case "amount":
+                        amountColumn = i;
+                        break;
+                    case "date":
+                        dateColumn = i;
+                        break;
+                    case "notification":
+                        notificationColumn = i;
+                        break;
+                    case "repeat":
+                        repeatColumn = i;
+                        break;
+                    case "repeat_every":
+                        repeatEveryColumn = i;
+                        break;
+                    case "repeat_until":
+                        repeatUntilColumn = i;
+                        break;
+                    case "repeat_count":
+                        repeatCountColumn = i;
+                        break;
+                    case "paid_through":
+                        paidThroughColumn = i;
+                        break;
+                }
+            }
+            if (nameColumn < 0 || amountColumn < 0 || dateColumn < 0){
+                throw new IOException("The CSV header must name the name, amount and date columns");
+            }
+            for (int column : new int[] {nameColumn, amountColumn, dateColumn, notificationColumn,
+                    repeatColumn, repeatEveryColumn, repeatUntilColumn, repeatCountColumn,
+                    paidThroughColumn}){
+                columns = Math.max(columns, column + 1);
+            }
+        }
+
+        @Override
+        public BillEntry next() throws IOException {
+            do {
+                if (!readRecord()){
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            if (fields.size() < columns){
+                throw new NumberFormatException("Expected " + columns + " fields but found " + fields.size());
+            }
+            int leadDays = BillFormat.parseLeadDays(field(notificationColumn));
+            int dueEpochDay = DueDates.parse(fields.get(dateColumn).trim());
+            Recurrence recurrence = BillFormat.parseRecurrence(field(repeatColumn),
+                    field(repeatEveryColumn), field(repeatUntilColumn), field(repeatCountColumn),
+                    field(paidThroughColumn), dueEpochDay);
+            return new BillEntry(0, fields.get(nameColumn),
+                    BillFormat.parseCents(fields.get(amountColumn)), dueEpochDay, leadDays,
+                    recurrence);
+        }
+
+        /**
+         * Returns the field of the current record in the given column, or null if the header
+         * does not name the column
+         */
+        private String field(int column){
+            return column < 0 ? null : fields.get(column);
+        }
+
+        /**
+         * Reads the next record into the list of fields
+         * @return boolean False if the end of the text was reached before any record
+         */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = in.read();
+            if (c == -1){
+                return false;
+            }
+            boolean quoted = false;
+            while (true){
+                if (quoted){
+                    if (c == -1){
+                        throw new IOException("The CSV file ends inside a quoted field");
+                    }
+                    if (c == '"'){
+                        c = in.read();
+                        if (c != '"'){
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    append(c);
+                }
+                else if (c == '"' && field.length() == 0){
+                    quoted = true;
+                }
+                else if (c == ','){
+                    fields.add(field.toString());
+                    field.setLength(0);
+                }
+                else if (c == '\n' || c == -1){
+                    break;
+                }
+                else if (c == '\r'){
+                    in.mark(1);
+                    if (in.read() != '\n'){
+                        in.reset();
+                    }
+                    break;
+                }
+                else{
+                    append(c);
+                }
+                c = in.read();
+            }
+            fields.add(field.toString());
+            return true;
+        }
+
+        private void append(int c) throws IOException {
+            if (field.length() == MAX_FIELD_LENGTH){
+                throw new IOException("A CSV field is longer than " + MAX_FIELD_LENGTH + " characters");
+            }
+            field.append((char) c);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes one record per bill after the header record
+     */
+    private static class CsvSink implements BillSink {
+
+        private final Writer out;
+
+        CsvSink(Writer out) throws IOException {
+            this.out = new BufferedWriter(out);
+            this.out.write(HEADER);
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(BillEntry entry) throws IOException {
+            writeField(entry.getTitle());
+            out.write(',');
+            out.write(BillFormat.formatCents(entry.getAmountCents()));
+            out.write(',');
+            out.write(DueDates.format(entry.getDueEpochDay()));
+            out.write(',');
+            out.write(Integer.toString(entry.getLeadDays()));
+            Recurrence recurrence = entry.getRecurrence();
+            if (recurrence == null){
+                out.write(",,,,,\r\n");
+                return;
+            }
+            out.write(',');
+            out.write(BillFormat.formatRepeatUnit(recurrence.getUnit()));
+            out.write(',');
+            out.write(Integer.toString(recurrence.getEvery()));
+            out.write(',');
+            if (recurrence.getUntilDay() != Recurrence.NO_OCCURRENCE){
+                out.write(DueDates.format(recurrence.getUntilDay()));
+            }
+            out.write(',');
+            out.write(Integer.toString(recurrence.getCount()));
+            out.write(',');
+            if (recurrence.getPaidThroughDay() != Recurrence.NOT_PAID){
+                out.write(DueDates.format(recurrence.getPaidThroughDay()));
+            }
+            out.write("\r\n");
+        }
+
+        /**
+         * Writes a text field, quoted if it holds a comma, a quote or a line break. A missing
+         * value is written as an empty field
+         */
+        private void writeField(String value) throws IOException {
+            if (value == null){
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 &&
+                    value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+}
@@ -1,57 +1,158 @@
-package apps.mohit.billit;
-
-/**
- * This class is the type class for a Bill. It has the associated properties as fields which
- * are then stored in the local SQLite database
- *
- * @author Mohit Kewalramani
- * @version 2.0
- * @since 2017-05-10
- */
-public class BillEntry {
-
-    private String title;
-    private String amount;
-    private String date;
-    private String notification;
-
-    public BillEntry(String title, String amount, String date, String notification){
-        this.title = title;
-        this.amount = amount;
-        this.date = date;
-        this.notification = notification;
-    }
-
-    public String getTitle(){
-        return title;
-    }
-
-    public String getAmount(){
-        return amount;
-    }
-
-    public String getDate(){
-        return date;
-    }
-
-    public String getNotification(){
-        return notification;
-    }
-
-    public void setTitle(String title){
-        this.title = title;
-    }
-
-    public void setAmount(String amount){
-        this.amount = amount;
-    }
-
-    public void setDate(String date){
-        this.date = date;
-    }
-
-    public void setNotification(String notification){
-        this.notification = notification;
-    }
-
-}
+package apps.mohit.billit;
+
+import java.util.Comparator;
+
+/**
+ * This class is the type class for a Bill. It has the associated properties as fields which
+ * are then stored in the local SQLite database
+ *
+ * @author Mohit Kewalramani
+ * @version 2.0
+ * @since 2017-05-10
+ */
+public class BillEntry {
+
+    public static final int NOT_PAID = Integer.MIN_VALUE;     // The paid day of a bill not paid yet
+
+    // Orders bills by due date and then id, the order every range query returns them in
+    public static final Comparator<BillEntry> DUE_ORDER = new Comparator<BillEntry>() {
+        @Override
+        public int compare(BillEntry first, BillEntry second){
+            if (first.getDueEpochDay() != second.getDueEpochDay()){
+                return first.getDueEpochDay() < second.getDueEpochDay() ? -1 : 1;
+            }
+            return first.getId() < second.getId() ? -1 : (first.getId() == second.getId() ? 0 : 1);
+        }
+    };
+
+    private int id;                 // The id of the bill in the database
+    private String title;
+    private long amountCents;       // The amount due in cents
+    private int dueEpochDay;        // The due date as the number of days since 1970-01-01
+    private int leadDays;           // The number of days before the due date to notify
+    private Recurrence recurrence;  // The repeat rule of a recurring bill, null if it does not repeat
+    private int paidEpochDay;       // The day the bill was paid, or NOT_PAID
+    private String amountText;      // The amount as shown on the list, formatted on first use
+    private String dueDateText;     // The due date as shown on the list, formatted on first use
+
+    public BillEntry(int id, String title, long amountCents, int dueEpochDay, int leadDays){
+        this(id, title, amountCents, dueEpochDay, leadDays, null);
+    }
+
+    public BillEntry(int id, String title, long amountCents, int dueEpochDay, int leadDays,
+                     Recurrence recurrence){
+        this(id, title, amountCents, dueEpochDay, leadDays, recurrence, NOT_PAID);
+    }
+
+    public BillEntry(int id, String title, long amountCents, int dueEpochDay, int leadDays,
+                     Recurrence recurrence, int paidEpochDay){
+        this.id = id;
+        this.title = title;
+        this.amountCents = amountCents;
+        this.dueEpochDay = dueEpochDay;
+        this.leadDays = leadDays;
+        this.recurrence = recurrence;
+        this.paidEpochDay = paidEpochDay;
+    }
+
+    public int getId(){
+        return id;
+    }
+
+    public String getTitle(){
+        return title;
+    }
+
+    public long getAmountCents(){
+        return amountCents;
+    }
+
+    public int getDueEpochDay(){
+        return dueEpochDay;
+    }
+
+    public int getLeadDays(){
+        return leadDays;
+    }
+
+    public Recurrence getRecurrence(){
+        return recurrence;
+    }
+
+    public int getPaidEpochDay(){
+        return paidEpochDay;
+    }
+
+    /**
+     * Returns true if the bill has been paid. A recurring bill is only paid once every one
+     * of its occurrences has been
+     * @return boolean True if the bill is paid
+     */
+    public boolean isPaid(){
+        return paidEpochDay != NOT_PAID;
+    }
+
+    /**
+     * Returns the occurrence of this recurring bill due on the given day. It keeps the id
+     * and repeat rule of the bill, whose first due date stays in the rule
+     * @param day The due date of the occurrence, as an epoch day
+     * @return BillEntry The occurrence
+     */
+    public BillEntry occurrenceOn(int day){
+        return new BillEntry(id, title, amountCents, day, leadDays, recurrence, paidEpochDay);
+    }
+
+    /**
+     * Returns an id that is different for every occurrence of a recurring bill, made from
+     * the bill's id and the occurrence's due date. A bill that does not repeat keeps its id
+     * @return long The id of the bill or occurrence
+     */
+    public long getOccurrenceId(){
+        if (recurrence == null){
+            return id;
+        }
+        return ((long) id << 32) | (dueEpochDay & 0xffffffffL);
+    }
+
+    /**
+     * Returns the amount as shown on the bill list, e.g. "$ 12.50". The text is formatted
+     * once and kept, so binding the bill to a row again does not build a new string
+     * @return String The formatted amount
+     */
+    public String getAmountText(){
+        if (amountText == null){
+            amountText = "$ " + BillFormat.formatCents(amountCents);
+        }
+        return amountText;
+    }
+
+    /**
+     * Returns the due date as shown on the bill list, formatted once and kept
+     * @return String The due date in yyyy-MM-dd format
+     */
+    public String getDueDateText(){
+        if (dueDateText == null){
+            dueDateText = DueDates.format(dueEpochDay);
+        }
+        return dueDateText;
+    }
+
+    public void setTitle(String title){
+        this.title = title;
+    }
+
+    public void setAmountCents(long amountCents){
+        this.amountCents = amountCents;
+        this.amountText = null;
+    }
+
+    public void setDueEpochDay(int dueEpochDay){
+        this.dueEpochDay = dueEpochDay;
+        this.dueDateText = null;
+    }
+
+    public void setLeadDays(int leadDays){
+        this.leadDays = leadDays;
+    }
+
+}
@@ -0,0 +1,243 @@
+package apps.mohit.billit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * This class converts the bill amount and notification choice between what the user types
+ * or sees on screen and the typed values stored in the local SQLite database. Amounts are
+ * stored in whole cents and notification choices as the number of days before the due date
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillFormat {
+
+    public static final int NO_NOTIFICATION = 0;        // The lead time stored when no notification is wanted
+
+    private BillFormat(){
+
+    }
+
+    /**
+     * Parses an amount entered by the user into whole cents
+     * @param amount The amount in dollars, e.g. "12.5"
+     * @return long The amount in cents, rounded to the nearest cent
+     * @throws NumberFormatException if the amount is not a number
+     */
+    public static long parseCents(String amount){
+        try {
+            return new BigDecimal(amount.trim())
+                    .movePointRight(2)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+        catch (ArithmeticException e){
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+    }
+
+    /**
+     * Parses an amount saved as text by version 2 of the app into whole cents. The amount
+     * was stored as typed, so a leading dollar sign and surrounding spaces are allowed
+     * @param amount The amount as saved, e.g. "$12.50"
+     * @return long The amount in cents, rounded to the nearest cent
+     * @throws NumberFormatException if the amount is missing or is not a number once the
+     * dollar sign is removed, e.g. "12,50"
+     */
+    public static long parseLegacyCents(String amount){
+        if (amount == null){
+            throw new NumberFormatException("No amount");
+        }
+        String trimmed = amount.trim();
+        if (trimmed.startsWith("$")){
+            trimmed = trimmed.substring(1);
+        }
+        return parseCents(trimmed);
+    }
+
+    /**
+     * Formats an amount in cents as dollars with two decimal places
+     * @param cents The amount in cents
+     * @return String The amount in dollars, e.g. "12.50"
+     */
+    public static String formatCents(long cents){
+        long absolute = Math.abs(cents);
+        long remainder = absolute % 100;
+        String formatted = (absolute / 100) + (remainder < 10 ? ".0" : ".") + remainder;
+        return cents < 0 ? "-" + formatted : formatted;
+    }
+
+    /**
+     * Returns the number of days before the due date that a notification choice stands for
+     * @param choice The notification choice as shown on the radio buttons
+     * @return int The number of days before the due date, or NO_NOTIFICATION
+     */
+    public static int leadDaysFor(String choice){
+        switch (choice){
+            case "3 Days Before Due":
+                return 3;
+            case "5 Days Before Due":
+                return 5;
+            case "1 Week Before Due":
+                return 7;
+            case "2 Weeks Before Due":
+                return 14;
+            default:
+                return NO_NOTIFICATION;
+        }
+    }
+
+    /**
+     * Reads the number of days before due to notify from an imported file. Only the lead
+     * times offered by the notification choices are accepted, as the reminders are worked
+     * out from them
+     * @param notification The number of days, or null or empty text for no notification
+     * @return int The number of days before the due date, or NO_NOTIFICATION
+     * @throws NumberFormatException if the text is not a number or not a lead time offered
+     */
+    public static int parseLeadDays(String notification){
+        if (isBlank(notification)){
+            return NO_NOTIFICATION;
+        }
+        int leadDays = Integer.parseInt(notification.trim());
+        if (leadDays != NO_NOTIFICATION && leadDaysFor(choiceFor(leadDays)) != leadDays){
+            throw new NumberFormatException("Unsupported notification lead days: " + leadDays);
+        }
+        return leadDays;
+    }
+
+    /**
+     * Returns the notification choice shown to the user for a number of days before due
+     * @param leadDays The number of days before the due date
+     * @return String The notification choice as shown on the radio buttons
+     */
+    public static String choiceFor(int leadDays){
+        switch (leadDays){
+            case 3:
+                return "3 Days Before Due";
+            case 5:
+                return "5 Days Before Due";
+            case 7:
+                return "1 Week Before Due";
+            case 14:
+                return "2 Weeks Before Due";
+            default:
+                return "No Notifications";
+        }
+    }
+
+    /**
+     * Turns the text typed into the search box into an FTS match expression, in which every
+     * word must be the start of a word of the title. Quotes and other punctuation are
+     * dropped, so nothing the user types is read as FTS syntax
+     * @param text The search text as typed by the user
+     * @return String The match expression, e.g. "hydro"* "bill"*, or null if there are no words
+     */
+    public static String searchMatch(String text){
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")){
+            if (word.isEmpty()){
+                continue;
+            }
+            if (match.length() > 0){
+                match.append(' ');
+            }
+            match.append('"').append(word).append("\"*");
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    /**
+     * Returns the name a repeat unit is written as in an exported file
+     * @param unit Recurrence.DAYS, WEEKS or MONTHS
+     * @return String "days", "weeks" or "months"
+     */
+    public static String formatRepeatUnit(int unit){
+        switch (unit){
+            case Recurrence.DAYS:
+                return "days";
+            case Recurrence.WEEKS:
+                return "weeks";
+            default:
+                return "months";
+        }
+    }
+
+    /**
+     * Reads the repeat rule of a bill from the fields of an imported file. Fields that are
+     * left out are passed as null or empty text
+     * @param unit "days", "weeks" or "months", or empty if the bill does not repeat
+     * @param every The number of units between occurrences, 1 if left out
+     * @param until The last day an occurrence may fall on as yyyy-MM-dd, if any
+     * @param count The number of occurrences, if counted
+     * @param paidThrough The due date of the last occurrence paid as yyyy-MM-dd, if any
+     * @param dueEpochDay The first due date of the bill as an epoch day
+     * @return Recurrence The repeat rule, or null if the bill does not repeat
+     * @throws NumberFormatException if a field cannot be read or the rule is not valid
+     */
+    public static Recurrence parseRecurrence(String unit, String every, String until,
+                                             String count, String paidThrough, int dueEpochDay){
+        if (isBlank(unit)){
+            return null;
+        }
+        int repeatUnit;
+        switch (unit.trim()){
+            case "days":
+                repeatUnit = Recurrence.DAYS;
+                break;
+            case "weeks":
+                repeatUnit = Recurrence.WEEKS;
+                break;
+            case "months":
+                repeatUnit = Recurrence.MONTHS;
+                break;
+            default:
+                throw new NumberFormatException("Unknown repeat unit: " + unit);
+        }
+        try {
+            return new Recurrence(repeatUnit,
+                    isBlank(every) ? 1 : Integer.parseInt(every.trim()),
+                    dueEpochDay,
+                    isBlank(until) ? Recurrence.NO_OCCURRENCE : DueDates.parse(until.trim()),
+                    isBlank(count) ? Recurrence.NO_COUNT : Integer.parseInt(count.trim()),
+                    isBlank(paidThrough) ? Recurrence.NOT_PAID : DueDates.parse(paidThrough.trim()));
+        }
+        catch (NumberFormatException e){
+            throw e;
+        }
+        catch (IllegalArgumentException e){
+            throw new NumberFormatException(e.getMessage());
+        }
+    }
+
+    private static boolean isBlank(String field){
+        return field == null || field.trim().isEmpty();
+    }
+
+    /**
+     * Returns the repeat rule that a repeat choice stands for
+     * @param choice The repeat choice as shown in the repeat spinner
+     * @param dueEpochDay The first due date of the bill as an epoch day
+     * @param count The number of times the bill is due, or Recurrence.NO_COUNT for no end
+     * @return Recurrence The repeat rule, or null if the bill does not repeat
+     */
+    public static Recurrence recurrenceFor(String choice, int dueEpochDay, int count){
+        switch (choice){
+            case "Every Week":
+                return new Recurrence(Recurrence.WEEKS, 1, dueEpochDay, Recurrence.NO_OCCURRENCE, count);
+            case "Every Two Weeks":
+                return new Recurrence(Recurrence.WEEKS, 2, dueEpochDay, Recurrence.NO_OCCURRENCE, count);
+            case "Every Month":
+                return new Recurrence(Recurrence.MONTHS, 1, dueEpochDay, Recurrence.NO_OCCURRENCE, count);
+            case "Every Three Months":
+                return new Recurrence(Recurrence.MONTHS, 3, dueEpochDay, Recurrence.NO_OCCURRENCE, count);
+            case "Every Year":
+                return new Recurrence(Recurrence.MONTHS, 12, dueEpochDay, Recurrence.NO_OCCURRENCE, count);
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package apps.mohit.billit;
+
+import android.app.Application;
+
+/**
+ * This class is the application of Bill It. It starts the work that runs for as long as the
+ * process does, whichever Activity or receiver the process was started for
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class BillItApplication extends Application {
+
+    /**
+     * Starts keeping the bill reminder alarm armed, and archives the bills paid more than
+     * ARCHIVE_AFTER_DAYS ago on the writer thread
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        ReminderScheduler.start(this);
+        new AsyncDatabase(DatabaseHelper.getInstance(this)).write(
+                new AsyncDatabase.Operation<Integer>() {
+                    @Override
+                    public Integer run(DatabaseHelper databaseHelper) {
+                        return databaseHelper.archivePaidBills(DatabaseHelper.ARCHIVE_AFTER_DAYS);
+                    }
+                }, null);
+    }
+
+}
@@ -0,0 +1,425 @@
+package apps.mohit.billit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * This class reads and writes bills as a JSON array with one object per bill, e.g.
+ * {"name":"Rent","amount":950.00,"date":"2026-11-01","notification":3}. The amount is in
+ * dollars, the date is yyyy-MM-dd and the notification is the number of days before due:
+ * 0 for none, or one of the lead times the app offers. A recurring bill also has the keys
+ * repeat (days, weeks or months), repeat_every and repeat_count, and repeat_until and
+ * paid_through when it has an end date or paid occurrences, which are dates like the due
+ * date. The array is read and written one object at a time, so files of any size are
+ * handled in a fixed amount of memory. Other keys in an object are skipped when reading
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillJson {
+
+    static final int MAX_VALUE_LENGTH = 64 * 1024;       // The longest value read before the file is rejected
+    private static final int MAX_DEPTH = 32;             // The deepest nesting skipped in an unknown value
+
+    private BillJson(){
+
+    }
+
+    /**
+     * Returns a source reading the bills from a JSON array
+     * @param in The JSON text
+     * @return BillSource The bills of the array
+     */
+    public static BillSource source(Reader in){
+        return new JsonSource(in);
+    }
+
+    /**
+     * Returns a sink writing bills as a JSON array. The array is closed when the sink is
+     * @param out Receives the JSON text
+     * @return BillSink The sink writing to the text
+     * @throws IOException if the start of the array cannot be written
+     */
+    public static BillSink sink(Writer out) throws IOException {
+        return new JsonSink(out);
+    }
+
+    /**
+     * Reads the objects of the array one at a time with a single character of look ahead
+     */
+    private static class JsonSource implements BillSource {
+
+        private final BufferedReader in;
+        private final StringBuilder value = new StringBuilder();   // The value being read
+        private boolean started;                                   // True once the '[' has been read
+        private boolean finished;                                  // True once the ']' has been read
+
+        JsonSource(Reader in){
+            this.in = new BufferedReader(in);
+        }
+
+        @Override
+        public BillEntry next() throws IOException {
+            if (finished){
+                return null;
+            }
+            if (!started){
+                expect('[');
+                started = true;
+                if (peek() == ']'){
+                    in.read();
+                    finished = true;
+                    return null;
+                }
+            }
+            else{
+                int c = read();
+                if (c == ']'){
+                    finished = true;
+                    return null;
+                }
+                if (c != ','){
+                    throw syntaxError("',' or ']'", c);
+                }
+            }
+            return readBill();
+        }
+
+        /**
+         * Reads one object of the array. Every key is read before any value is converted,
+         * so a malformed value leaves the source at the start of the next object
+         */
+        private BillEntry readBill() throws IOException {
+            String name = null;
+            String amount = null;
+            String date = null;
+            String notification = null;
+            String repeat = null;
+            String repeatEvery = null;
+            String repeatUntil = null;
+            String repeatCount = null;
+            String paidThrough = null;
+            expect('{');
+            if (peek() == '}'){
+                in.read();
+            }
+            else{
+                while (true){
+                    if (peek() != '"'){
+                        throw syntaxError("a key", peek());
+                    }
+                    in.read();
+                    String key = readString();
+                    expect(':');
+                    switch (key){
+                        case "name":
+                            name = readValue();
+                            break;
+                        case "amount":
+                            amount = readValue();
+                            break;
+                        case "date":
+                            date = readValue();
+                            break;
+                        case "notification":
+                            notification = readValue();
+                            break;
+                        case "repeat":
+                            repeat = readValue();
+                            break;
+                        case "repeat_every":
+                            repeatEvery = readValue();
+                            break;
+                        case "repeat_until":
+                            repeatUntil = readValue();
+                            break;
+                        case "repeat_count":
+                            repeatCount = readValue();
+                            break;
+                        case "paid_through":
+                            paidThrough = readValue();
+                            break;
+                        default:
+                            skipValue(0);
+                            break;
+                    }
+                    int c = read();
+                    if (c == '}'){
+                        break;
+                    }
+                    if (c != ','){
+                        throw syntaxError("',' or '}'", c);
+                    }
+                }
+            }
+
+            if (name == null || amount == null || date == null){
+                throw new NumberFormatException("A bill needs a name, amount and date");
+            }
+            int leadDays = BillFormat.parseLeadDays(notification);
+            int dueEpochDay = DueDates.parse(date);
+            return new BillEntry(0, name, BillFormat.parseCents(amount), dueEpochDay, leadDays,
+                    BillFormat.parseRecurrence(repeat, repeatEvery, repeatUntil, repeatCount,
+                            paidThrough, dueEpochDay));
+        }
+
+        /**
+         * Reads a string, number, true, false or null value as text, null for a null value
+         */
+        private String readValue() throws IOException {
+            if (peek() == '"'){
+                in.read();
+                return readString();
+            }
+            String literal = readLiteral();
+            return literal.equals("null") ? null : literal;
+        }
+
+        /**
+         * Reads the rest of a string whose opening quote has been read
+         */
+        private String readString() throws IOException {
+            value.setLength(0);
+            while (true){
+                int c = in.read();
+                if (c == -1){
+                    throw new IOException("The JSON file ends inside a string");
+                }
+                if (c == '"'){
+                    return value.toString();
+                }
+                if (c == '\\'){
+                    c = in.read();
+                    switch (c){
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'u':
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++){
+                                hex[i] = (char) in.read();
+                            }
+                            try {
+                                c = Integer.parseInt(new String(hex), 16);
+                            }
+                            catch (NumberFormatException e){
+                                throw new IOException("Malformed \\u escape in the JSON file");
+                            }
+                            break;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            break;
+                        default:
+                            throw syntaxError("an escape character", c);
+                    }
+                }
+                append(c);
+            }
+        }
+
+        /**
+         * Reads a number, true, false or null up to the character that ends it
+         */
+        private String readLiteral() throws IOException {
+            value.setLength(0);
+            peek();
+            while (true){
+                in.mark(1);
+                int c = in.read();
+                if (c == -1 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)){
+                    in.reset();
+                    break;
+                }
+                append(c);
+            }
+            if (value.length() == 0){
+                throw syntaxError("a value", peek());
+            }
+            return value.toString();
+        }
+
+        /**
+         * Reads past a value of any type, including nested objects and arrays
+         */
+        private void skipValue(int depth) throws IOException {
+            if (depth == MAX_DEPTH){
+                throw new IOException("A JSON value is nested deeper than " + MAX_DEPTH + " levels");
+            }
+            int c = peek();
+            if (c == '"'){
+                in.read();
+                readString();
+            }
+            else if (c == '{' || c == '['){
+                in.read();
+                char close = c == '{' ? '}' : ']';
+                if (peek() == close){
+                    in.read();
+                    return;
+                }
+                while (true){
+                    if (c == '{'){
+                        expect('"');
+                        readString();
+                        expect(':');
+                    }
+                    skipValue(depth + 1);
+                    int next = read();
+                    if (next == close){
+                        return;
+                    }
+                    if (next != ','){
+                        throw syntaxError("',' or '" + close + "'", next);
+                    }
+                }
+            }
+            else{
+                readLiteral();
+            }
+        }
+
+        private void append(int c) throws IOException {
+            if (value.length() == MAX_VALUE_LENGTH){
+                throw new IOException("A JSON value is longer than " + MAX_VALUE_LENGTH + " characters");
+            }
+            value.append((char) c);
+        }
+
+        /**
+         * Returns the next character that is not whitespace without reading it
+         */
+        private int peek() throws IOException {
+            while (true){
+                in.mark(1);
+                int c = in.read();
+                if (c == -1 || !Character.isWhitespace(c)){
+                    in.reset();
+                    return c;
+                }
+            }
+        }
+
+        /**
+         * Reads the next character that is not whitespace
+         */
+        private int read() throws IOException {
+            peek();
+            return in.read();
+        }
+
+        private void expect(char expected) throws IOException {
+            int c = read();
+            if (c != expected){
+                throw syntaxError("'" + expected + "'", c);
+            }
+        }
+
+        private IOException syntaxError(String expected, int found){
+            return new IOException("Expected " + expected + " in the JSON file but found " +
+                    (found == -1 ? "the end of the file" : "'" + (char) found + "'"));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes one object per bill inside an array
+     */
+    private static class JsonSink implements BillSink {
+
+        private final Writer out;
+        private boolean first = true;          // True until the first bill has been written
+
+        JsonSink(Writer out) throws IOException {
+            this.out = new BufferedWriter(out);
+            this.out.write('[');
+        }
+
+        @Override
+        public void write(BillEntry entry) throws IOException {
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":");
+            writeString(entry.getTitle());
+            out.write(",\"amount\":");
+            out.write(BillFormat.formatCents(entry.getAmountCents()));
+            out.write(",\"date\":\"");
+            out.write(DueDates.format(entry.getDueEpochDay()));
+            out.write("\",\"notification\":");
+            out.write(Integer.toString(entry.getLeadDays()));
+            Recurrence recurrence = entry.getRecurrence();
+            if (recurrence != null){
+                out.write(",\"repeat\":\"");
+                out.write(BillFormat.formatRepeatUnit(recurrence.getUnit()));
+                out.write("\",\"repeat_every\":");
+                out.write(Integer.toString(recurrence.getEvery()));
+                out.write(",\"repeat_count\":");
+                out.write(Integer.toString(recurrence.getCount()));
+                if (recurrence.getUntilDay() != Recurrence.NO_OCCURRENCE){
+                    out.write(",\"repeat_until\":\"");
+                    out.write(DueDates.format(recurrence.getUntilDay()));
+                    out.write('"');
+                }
+                if (recurrence.getPaidThroughDay() != Recurrence.NOT_PAID){
+                    out.write(",\"paid_through\":\"");
+                    out.write(DueDates.format(recurrence.getPaidThroughDay()));
+                    out.write('"');
+                }
+            }
+            out.write('}');
+        }
+
+        /**
+         * Writes a string value, escaped as JSON requires. A missing value is written as an
+         * empty string
+         */
+        private void writeString(String value) throws IOException {
+            out.write('"');
+            if (value == null){
+                out.write('"');
+                return;
+            }
+            for (int i = 0; i < value.length(); i++){
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\'){
+                    out.write('\\');
+                    out.write(c);
+                }
+                else if (c < 0x20){
+                    out.write(String.format("\\u%04x", (int) c));
+                }
+                else{
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write("\n]\n");
+            out.close();
+        }
+    }
+
+}
@@ -1,85 +1,166 @@
-package apps.mohit.billit;
-
-import android.view.LayoutInflater;
-import android.view.View;
-import android.view.ViewGroup;
-import android.widget.BaseAdapter;
-import android.widget.TextView;
-
-import java.util.ArrayList;
-
-/**
- * This class is the ListView Adapter which populates the ListView with data from the database.
- * This method makes use of an ArrayList to store all database values and to correspondingly
- * populate the ListView
- *
- * @author Mohit Kewalramani
- * @version 2.0
- * @since 2017-05-10
- */
-public class BillListAdapter extends BaseAdapter{
-
-    // List of stored BillItems to display on the ListView
-    public ArrayList<BillEntry> billList = new ArrayList();
-
-    public BillListAdapter(){
-
-    }
-
-    /**
-     * Returns the size of the Arraylist
-     * @return int the size of the ArrayList
-     */
-    @Override
-    public int getCount() {
-        return billList.size();
-    }
-
-    /**
-     * Returns the item at the indexed position at the ArrayList
-     * @param position The index of the list at which we are looking at
-     * @return BillEntry The entry at the given position
-     */
-    @Override
-    public Object getItem(int position) {
-        return billList.get(position);
-    }
-
-    /**
-     * The item's index we are currently looking at
-     * @param position The assigned position
-     * @return int The position we are looking at
-     */
-    @Override
-    public long getItemId(int position) {
-        return position;
-    }
-
-    /**
-     * This method iterates through the items in the ArrayList and populates the view
-     * ListView
-     * @param position The index of the List to query
-     * @param convertView the view onto which we are writing the bill's data onto
-     * @param parent The parent Activity onto which we are writing the bill's data to
-     * @return View the view with all the data constructed on
-     */
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        if (convertView == null){
-            LayoutInflater inflater = LayoutInflater.from(parent.getContext());
-            convertView = inflater.inflate(R.layout.bill_list_entry, parent, false);
-        }
-        BillEntry entry = billList.get(position);
-
-        TextView amountView = (TextView) convertView.findViewById(R.id.BillAmountView);
-        amountView.setText("$ " + entry.getAmount());
-
-        TextView dateView = (TextView) convertView.findViewById(R.id.BillDateView);
-        dateView.setText(entry.getDate());
-
-        TextView titleView = (TextView) convertView.findViewById(R.id.BillTitleView);
-        titleView.setText(entry.getTitle());
-
-        return convertView;
-    }
-}
+package apps.mohit.billit;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * This class is the RecyclerView Adapter which populates the bill list with data from the
+ * database. The bills are read a page at a time through a BillPager as the list is scrolled,
+ * so rows whose page has not arrived yet are shown as loading until it does. Each row keeps
+ * its TextViews in a view holder and binds the text the BillEntry has already formatted, so
+ * scrolling does no view lookups or string building
+ *
+ * @author Mohit Kewalramani
+ * @version 2.0
+ * @since 2017-05-10
+ */
+public class BillListAdapter extends RecyclerView.Adapter<BillListAdapter.BillViewHolder> {
+
+    // The pager that loads the bills displayed on the list
+    private final BillPager billPager;
+    // Told when a bill on the list is clicked or long clicked
+    private OnBillClickListener onBillClickListener;
+
+    /**
+     * Receives clicks on the bills shown in the list
+     */
+    public interface OnBillClickListener {
+        void onBillClick(BillEntry entry);
+        void onBillLongClick(BillEntry entry);
+    }
+
+    public BillListAdapter(BillPager billPager){
+        this.billPager = billPager;
+        setHasStableIds(true);
+        billPager.setListener(new BillPager.Listener() {
+            @Override
+            public void onPagesChanged() {
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onPageLoaded(int firstPosition, int count) {
+                notifyItemRangeChanged(firstPosition, count);
+            }
+
+            @Override
+            public void onBillInserted(int position) {
+                notifyItemInserted(position);
+            }
+
+            @Override
+            public void onBillRemoved(int position) {
+                notifyItemRemoved(position);
+            }
+
+            @Override
+            public void onBillMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onBillChanged(int position) {
+                notifyItemChanged(position);
+            }
+        });
+    }
+
+    public void setOnBillClickListener(OnBillClickListener onBillClickListener){
+        this.onBillClickListener = onBillClickListener;
+    }
+
+    /**
+     * Returns the number of bills in the range being displayed
+     * @return int the number of bills in the range
+     */
+    @Override
+    public int getItemCount() {
+        return billPager.size();
+    }
+
+    /**
+     * The database id of the bill at the given position, or the occurrence id of one
+     * occurrence of a recurring bill. The bill is only peeked at, so asking for an id never
+     * starts a page load. Rows that are still loading have no stable id rather than one that
+     * would change once their page arrives
+     * @param position The assigned position
+     * @return long The id of the bill or occurrence, or RecyclerView.NO_ID while loading
+     */
+    @Override
+    public long getItemId(int position) {
+        BillEntry entry = billPager.peek(position);
+        return entry != null ? entry.getOccurrenceId() : RecyclerView.NO_ID;
+    }
+
+    /**
+     * Inflates a row of the list and wraps it in a view holder
+     * @param parent The RecyclerView the row is added to
+     * @param viewType The type of the row, there is only one
+     * @return BillViewHolder The holder of the new row
+     */
+    @Override
+    public BillViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        return new BillViewHolder(inflater.inflate(R.layout.bill_list_entry, parent, false));
+    }
+
+    /**
+     * Writes the bill at the given position onto a row of the list
+     * @param holder The holder of the row
+     * @param position The index of the List to query
+     */
+    @Override
+    public void onBindViewHolder(BillViewHolder holder, int position) {
+        BillEntry entry = billPager.get(position);
+        holder.entry = entry;
+        if (entry == null){
+            holder.amountView.setText("");
+            holder.dateView.setText("");
+            holder.titleView.setText(R.string.bill_loading);
+            return;
+        }
+        holder.amountView.setText(entry.getAmountText());
+        holder.dateView.setText(entry.getDueDateText());
+        holder.titleView.setText(entry.getTitle());
+    }
+
+    /**
+     * Holds the views of a row so they are looked up once when the row is inflated
+     */
+    class BillViewHolder extends RecyclerView.ViewHolder
+            implements View.OnClickListener, View.OnLongClickListener {
+
+        final TextView amountView;
+        final TextView dateView;
+        final TextView titleView;
+        BillEntry entry;            // The bill currently bound to the row, null while loading
+
+        BillViewHolder(View itemView){
+            super(itemView);
+            amountView = (TextView) itemView.findViewById(R.id.BillAmountView);
+            dateView = (TextView) itemView.findViewById(R.id.BillDateView);
+            titleView = (TextView) itemView.findViewById(R.id.BillTitleView);
+            itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (entry != null && onBillClickListener != null){
+                onBillClickListener.onBillClick(entry);
+            }
+        }
+
+        @Override
+        public boolean onLongClick(View view) {
+            if (entry != null && onBillClickListener != null){
+                onBillClickListener.onBillLongClick(entry);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package apps.mohit.billit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class loads the bills in a due date range a page at a time as the list is scrolled,
+ * so only a bounded number of bills are held in memory whatever the size of the table.
+ * Pages are kept in a least recently used cache and the next page is fetched in the
+ * background before the user reaches it. Pages are fetched by (date, id) key from the end
+ * of the page before when that page is in memory, and by offset otherwise.
+ * Inserts, updates and deletes reported by the DatabaseHelper are applied to the loaded
+ * pages in place, shifting a bill across each page boundary, so a change costs a handful
+ * of list operations instead of a reload. Only a page whose neighbour is not loaded, and
+ * so cannot supply the bill that shifts into it, is dropped to be queried again.
+ * A pager can also page through the results of a title search, in the same (date, id)
+ * order; as any change can add a bill to or remove one from the results, it reloads them.
+ * All methods are called on the main thread; queries run through the AsyncDatabase
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class BillPager implements DatabaseHelper.ChangeListener {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;       // The number of bills in each page
+    public static final int DEFAULT_MAX_PAGES = 8;        // The number of pages kept in memory
+    private static final int UNKNOWN_POSITION = -1;       // The position of a bill whose page is not loaded
+
+    private final AsyncDatabase asyncDatabase;    // Runs the page queries off the UI thread
+    private final int fromDay;                    // The first due date in the range
+    private final int toDay;                      // The last due date in the range
+    private final String searchText;              // The title search paged through, null for a date range
+    private final int pageSize;                   // The number of bills in each page
+    private final LinkedHashMap<Integer, List<BillEntry>> pages;   // Loaded pages, least recently used first
+    private final Set<Integer> loadingPages = new HashSet<>();    // Pages with a query in flight
+    private List<BillEntry> shownBills;           // The bills passed to show, until a bill changes
+    private int count;                            // The number of bills in the range
+    private int generation;                       // Bumped on reload so stale results are ignored
+    private Listener listener;                    // Told when the loaded pages change
+
+    /**
+     * Receives calls on the main thread whenever the bills held by the pager change
+     */
+    public interface Listener {
+        // Every position may have changed, e.g. after a reload
+        void onPagesChanged();
+        // A page arrived for rows that were shown as loading
+        void onPageLoaded(int firstPosition, int count);
+        void onBillInserted(int position);
+        void onBillRemoved(int position);
+        void onBillMoved(int fromPosition, int toPosition);
+        void onBillChanged(int position);
+    }
+
+    /**
+     * The constructor of the pager
+     * @param asyncDatabase Runs the page queries off the UI thread
+     * @param fromDay The first due date in the range, as an epoch day
+     * @param toDay The last due date in the range, as an epoch day
+     * @param pageSize The number of bills in each page
+     * @param maxPages The number of pages kept in memory
+     */
+    public BillPager(AsyncDatabase asyncDatabase, int fromDay, int toDay,
+                     int pageSize, int maxPages){
+        this(asyncDatabase, fromDay, toDay, null, pageSize, maxPages);
+    }
+
+    /**
+     * The constructor of a pager over the bills whose title matches a search
+     * @param asyncDatabase Runs the page queries off the UI thread
+     * @param searchText The search text as typed by the user
+     * @param pageSize The number of bills in each page
+     * @param maxPages The number of pages kept in memory
+     */
+    public BillPager(AsyncDatabase asyncDatabase, String searchText, int pageSize, int maxPages){
+        this(asyncDatabase, DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY, searchText,
+                pageSize, maxPages);
+    }
+
+    private BillPager(AsyncDatabase asyncDatabase, int fromDay, int toDay, String searchText,
+                      int pageSize, final int maxPages){
+        this.asyncDatabase = asyncDatabase;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.searchText = searchText;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<BillEntry>>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<BillEntry>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public void setListener(Listener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Drops every loaded page and loads the count and first page of the range again.
+     * The count and first page are fetched together so the list is drawn in one pass
+     */
+    public void reload(){
+        generation++;
+        shownBills = null;
+        pages.clear();
+        loadingPages.clear();
+        loadingPages.add(0);
+        final int requestGeneration = generation;
+        asyncDatabase.read(new AsyncDatabase.Operation<FirstPage>() {
+            @Override
+            public FirstPage run(DatabaseHelper databaseHelper) {
+                FirstPage firstPage = new FirstPage();
+                if (searchText != null){
+                    firstPage.count = databaseHelper.countSearch(searchText);
+                    firstPage.bills = formatted(databaseHelper.searchBills(searchText, pageSize, 0));
+                    return firstPage;
+                }
+                firstPage.count = databaseHelper.countBills(fromDay, toDay);
+                firstPage.bills =
+                        formatted(databaseHelper.queryBills(fromDay, toDay, pageSize, 0));
+                return firstPage;
+            }
+        }, new AsyncDatabase.Callback<FirstPage>() {
+            @Override
+            public void onResult(FirstPage firstPage) {
+                if (requestGeneration != generation){
+                    return;
+                }
+                loadingPages.remove(0);
+                count = firstPage.count;
+                pages.put(0, firstPage.bills);
+                if (listener != null){
+                    listener.onPagesChanged();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows bills already read from the database instead of querying the count and first
+     * page. Each page is copied out of them as it is reached, so a list reading its bills
+     * from BillColumns only has the pages in memory turned into BillEntry type. Once a bill
+     * changes the bills are dropped, and the pages not in memory are queried as usual
+     * @param bills Every bill in the range, ordered by due date and id
+     */
+    public void show(List<BillEntry> bills){
+        generation++;
+        pages.clear();
+        loadingPages.clear();
+        shownBills = bills;
+        count = bills.size();
+        if (listener != null){
+            listener.onPagesChanged();
+        }
+    }
+
+    /**
+     * Returns the number of bills in the range
+     * @return int The number of bills in the range
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * Returns the bill at the given position. If its page is not in memory yet the page is
+     * requested and null is returned; the listener is called once it arrives
+     * @param position The position of the bill in the range
+     * @return BillEntry The bill, or null if its page is still loading
+     */
+    public BillEntry get(int position){
+        int pageIndex = position / pageSize;
+        int indexInPage = position % pageSize;
+        List<BillEntry> page = pages.get(pageIndex);
+        if (page == null){
+            requestPage(pageIndex);
+            // A page of the shown bills is copied straight away
+            page = pages.get(pageIndex);
+            if (page == null){
+                return null;
+            }
+        }
+        if (indexInPage >= pageSize / 2){
+            prefetch(pageIndex + 1);
+        }
+        return indexInPage < page.size() ? page.get(indexInPage) : null;
+    }
+
+    /**
+     * Returns the bill at the given position if it is already in memory, without requesting
+     * its page or any page after it
+     * @param position The position of the bill in the range
+     * @return BillEntry The bill, or null if its page has not been loaded
+     */
+    public BillEntry peek(int position){
+        List<BillEntry> page = pages.get(position / pageSize);
+        if (page != null){
+            int indexInPage = position % pageSize;
+            return indexInPage < page.size() ? page.get(indexInPage) : null;
+        }
+        if (shownBills != null && position < shownBills.size()){
+            return shownBills.get(position);
+        }
+        return null;
+    }
+
+    /**
+     * Requests a page ahead of the user reaching it, if it is in range and not loaded
+     * @param pageIndex The index of the page to fetch
+     */
+    private void prefetch(int pageIndex){
+        if (pageIndex * pageSize < count && !pages.containsKey(pageIndex)){
+            requestPage(pageIndex);
+        }
+    }
+
+    /**
+     * Queries a page in the background. When the last bill of the page before is in memory
+     * the page is read by key from that bill, otherwise by offset. While bills passed to
+     * show are held, the page is copied from them instead
+     * @param pageIndex The index of the page to fetch
+     */
+    private void requestPage(final int pageIndex){
+        if (shownBills != null){
+            int first = pageIndex * pageSize;
+            pages.put(pageIndex, formatted(new ArrayList<>(
+                    shownBills.subList(first, Math.min(count, first + pageSize)))));
+            return;
+        }
+        if (!loadingPages.add(pageIndex)){
+            return;
+        }
+        List<BillEntry> previousPage = pageIndex > 0 ? pages.get(pageIndex - 1) : null;
+        final BillEntry previous = previousPage != null && previousPage.size() == pageSize
+                ? previousPage.get(pageSize - 1) : null;
+        final int requestGeneration = generation;
+        asyncDatabase.read(new AsyncDatabase.Operation<List<BillEntry>>() {
+            @Override
+            public List<BillEntry> run(DatabaseHelper databaseHelper) {
+                if (searchText != null && previous != null){
+                    return formatted(databaseHelper.searchBillsAfter(searchText,
+                            previous.getDueEpochDay(), previous.getId(), pageSize));
+                }
+                if (searchText != null){
+                    return formatted(databaseHelper.searchBills(searchText, pageSize,
+                            pageIndex * pageSize));
+                }
+                if (previous != null){
+                    return formatted(databaseHelper.queryBillsAfter(fromDay, toDay,
+                            previous.getDueEpochDay(), previous.getId(), pageSize));
+                }
+                return formatted(databaseHelper.queryBills(fromDay, toDay, pageSize,
+                        pageIndex * pageSize));
+            }
+        }, new AsyncDatabase.Callback<List<BillEntry>>() {
+            @Override
+            public void onResult(List<BillEntry> bills) {
+                if (requestGeneration != generation){
+                    return;
+                }
+                loadingPages.remove(pageIndex);
+                pages.put(pageIndex, bills);
+                if (listener != null){
+                    listener.onPageLoaded(pageIndex * pageSize, bills.size());
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a change to the bills table to the loaded pages without querying the database
+     * @param change The change made to the bills table
+     */
+    @Override
+    public void onBillChanged(BillChange change){
+        shownBills = null;
+        if (change.isReset() || searchText != null){
+            reload();
+            return;
+        }
+        BillEntry before = inRange(change.getBefore()) ? change.getBefore() : null;
+        BillEntry after = inRange(change.getAfter()) ? change.getAfter() : null;
+        if (before == null && after == null){
+            return;
+        }
+        if (!loadingPages.isEmpty()){
+            // A page queried before the change may still arrive, so start again
+            reload();
+            return;
+        }
+        if (after != null){
+            after.getAmountText();
+            after.getDueDateText();
+        }
+        if (before != null && after != null && BillEntry.DUE_ORDER.compare(before, after) == 0){
+            int position = replace(after);
+            if (listener != null && position != UNKNOWN_POSITION){
+                listener.onBillChanged(position);
+            }
+            return;
+        }
+        int fromPosition = before != null ? remove(before) : UNKNOWN_POSITION;
+        int toPosition = after != null ? insert(after) : UNKNOWN_POSITION;
+        dropIncompletePages();
+        if (listener == null){
+            return;
+        }
+        if (before != null && after != null){
+            if (fromPosition == UNKNOWN_POSITION || toPosition == UNKNOWN_POSITION){
+                listener.onPagesChanged();
+            }
+            else{
+                listener.onBillMoved(fromPosition, toPosition);
+                listener.onBillChanged(toPosition);
+            }
+        }
+        else if (before != null){
+            if (fromPosition == UNKNOWN_POSITION){
+                listener.onPagesChanged();
+            }
+            else{
+                listener.onBillRemoved(fromPosition);
+            }
+        }
+        else{
+            if (toPosition == UNKNOWN_POSITION){
+                listener.onPagesChanged();
+            }
+            else{
+                listener.onBillInserted(toPosition);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a bill falls in the due date range of this pager. Paid bills are
+     * never listed
+     * @param entry The bill to check, may be null
+     * @return boolean True if the bill is in range
+     */
+    private boolean inRange(BillEntry entry){
+        return entry != null && !entry.isPaid() && entry.getDueEpochDay() >= fromDay
+                && entry.getDueEpochDay() <= toDay;
+    }
+
+    /**
+     * Replaces a bill whose position has not changed in the page holding it
+     * @param entry The bill after the change
+     * @return int The position of the bill, or UNKNOWN_POSITION if its page is not loaded
+     */
+    private int replace(BillEntry entry){
+        for (int pageIndex : sortedPageIndexes()){
+            List<BillEntry> page = pages.get(pageIndex);
+            int index = indexOf(page, entry);
+            if (index >= 0){
+                page.set(index, entry);
+                return pageIndex * pageSize + index;
+            }
+        }
+        return UNKNOWN_POSITION;
+    }
+
+    /**
+     * Removes a bill from the range. The page holding it loses the bill, and every later
+     * page passes its first bill back to the page before it
+     * @param removed The bill as it was before it left the range
+     * @return int The position the bill was removed from, or UNKNOWN_POSITION if its page
+     *             is not loaded
+     */
+    private int remove(BillEntry removed){
+        count--;
+        int position = UNKNOWN_POSITION;
+        List<BillEntry> previousPage = null;     // The page before, if loaded and shifted
+        int previousIndex = -2;
+        for (int pageIndex : sortedPageIndexes()){
+            List<BillEntry> page = pages.get(pageIndex);
+            List<BillEntry> shifted = null;
+            if (page.isEmpty()){
+                continue;
+            }
+            if (BillEntry.DUE_ORDER.compare(removed, page.get(0)) < 0){
+                BillEntry carried = page.remove(0);
+                if (previousPage != null && previousIndex == pageIndex - 1){
+                    previousPage.add(carried);
+                }
+                shifted = page;
+            }
+            else if (BillEntry.DUE_ORDER.compare(removed, page.get(page.size() - 1)) <= 0){
+                int index = indexOf(page, removed);
+                if (index >= 0){
+                    page.remove(index);
+                    position = pageIndex * pageSize + index;
+                }
+                shifted = page;
+            }
+            previousPage = shifted;
+            previousIndex = pageIndex;
+        }
+        return position;
+    }
+
+    /**
+     * Inserts a bill into the range. The page it belongs to gains the bill, and every later
+     * page takes the last bill of the page before it
+     * @param inserted The bill as it is after it entered the range
+     * @return int The position the bill was inserted at, or UNKNOWN_POSITION if it falls
+     *             between pages that are not loaded
+     */
+    private int insert(BillEntry inserted){
+        count++;
+        int position = UNKNOWN_POSITION;
+        BillEntry carried = null;        // The bill pushed off the end of the page before
+        int carriedFrom = -2;
+        List<BillEntry> previousPage = null;
+        int previousIndex = -2;
+        for (int pageIndex : sortedPageIndexes()){
+            List<BillEntry> page = pages.get(pageIndex);
+            boolean previousLoaded = previousPage != null && previousIndex == pageIndex - 1;
+            if (page.isEmpty() && pageIndex == 0){
+                page.add(inserted);
+                position = 0;
+            }
+            else if (page.isEmpty() || BillEntry.DUE_ORDER.compare(inserted, page.get(0)) < 0){
+                if (carried != null && carriedFrom == pageIndex - 1){
+                    page.add(0, carried);
+                }
+                else if (previousLoaded && previousPage.size() == pageSize &&
+                        BillEntry.DUE_ORDER.compare(inserted, previousPage.get(pageSize - 1)) > 0){
+                    page.add(0, inserted);
+                    position = pageIndex * pageSize;
+                }
+                else{
+                    // The bill that shifts into this page is not in memory
+                    page.clear();
+                }
+            }
+            else if (BillEntry.DUE_ORDER.compare(inserted, page.get(page.size() - 1)) < 0){
+                int index = insertionIndex(page, inserted);
+                page.add(index, inserted);
+                position = pageIndex * pageSize + index;
+            }
+            else if (page.size() < pageSize){
+                page.add(inserted);
+                position = pageIndex * pageSize + page.size() - 1;
+            }
+            carried = null;
+            if (page.size() > pageSize){
+                carried = page.remove(page.size() - 1);
+                carriedFrom = pageIndex;
+            }
+            previousPage = page;
+            previousIndex = pageIndex;
+        }
+        return position;
+    }
+
+    /**
+     * Drops every loaded page that no longer holds exactly the bills of its position,
+     * so that it is queried again when it is next shown
+     */
+    private void dropIncompletePages(){
+        for (int pageIndex : sortedPageIndexes()){
+            int expectedSize = Math.min(pageSize, count - pageIndex * pageSize);
+            if (expectedSize <= 0 || pages.get(pageIndex).size() != expectedSize){
+                pages.remove(pageIndex);
+            }
+        }
+    }
+
+    /**
+     * Returns the indexes of the loaded pages in ascending order
+     * @return int[] The loaded page indexes
+     */
+    private int[] sortedPageIndexes(){
+        int[] indexes = new int[pages.size()];
+        int i = 0;
+        for (int pageIndex : pages.keySet()){
+            indexes[i++] = pageIndex;
+        }
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * Returns the index of the bill with the same id in a page
+     * @return int The index of the bill, or -1 if it is not in the page
+     */
+    private static int indexOf(List<BillEntry> page, BillEntry entry){
+        for (int i = 0; i < page.size(); i++){
+            if (page.get(i).getId() == entry.getId()){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index at which a bill belongs in a page sorted by (date, id)
+     * @return int The insertion index
+     */
+    private static int insertionIndex(List<BillEntry> page, BillEntry entry){
+        int index = 0;
+        while (index < page.size() && BillEntry.DUE_ORDER.compare(page.get(index), entry) < 0){
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Formats the display text of each bill so it is not built while the list scrolls.
+     * This is run on the reader thread as each page is queried, and on each page copied from
+     * the bills passed to show
+     * @param bills The bills to format
+     * @return List<BillEntry> The same bills
+     */
+    public static List<BillEntry> formatted(List<BillEntry> bills){
+        for (BillEntry entry : bills){
+            entry.getAmountText();
+            entry.getDueDateText();
+        }
+        return bills;
+    }
+
+    /**
+     * The result of the query that opens the range
+     */
+    private static class FirstPage {
+        int count;                  // The number of bills in the range
+        List<BillEntry> bills;      // The first page of bills
+    }
+
+}
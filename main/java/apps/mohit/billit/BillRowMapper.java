@@ -0,0 +1,93 @@
+package apps.mohit.billit;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+
+/**
+ * This class maps the rows of a cursor over the bills table into BillEntry type. The column
+ * indices are looked up once when the mapper is created for a cursor, rather than on every
+ * row, and the same mapper is used for every row of that cursor
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillRowMapper {
+
+    private final int idColumn;              // The index of the id column in the cursor
+    private final int nameColumn;            // The index of the name column in the cursor
+    private final int amountColumn;          // The index of the amount column in the cursor
+    private final int dateColumn;            // The index of the date column in the cursor
+    private final int notificationColumn;    // The index of the notification column in the cursor
+    private final int repeatUnitColumn;      // The index of the repeat unit column in the cursor
+    private final int repeatEveryColumn;     // The index of the repeat interval column in the cursor
+    private final int repeatUntilColumn;     // The index of the repeat end date column in the cursor
+    private final int repeatCountColumn;     // The index of the repeat count column in the cursor
+    private final int paidDayColumn;         // The index of the paid day column in the cursor
+    private final int paidThroughColumn;     // The index of the paid through column in the cursor
+
+    /**
+     * Resolves the column indices of the given cursor
+     * @param cursor A cursor selecting every column of the bills table
+     * @throws IllegalArgumentException if a column of the bills table is missing
+     */
+    public BillRowMapper(Cursor cursor){
+        idColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_ID);
+        nameColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_NAME);
+        amountColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_AMOUNT);
+        dateColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_DUEDATE);
+        notificationColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_NOTIFICATION_CHOICE);
+        repeatUnitColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_REPEAT_UNIT);
+        repeatEveryColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_REPEAT_EVERY);
+        repeatUntilColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_REPEAT_UNTIL);
+        repeatCountColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_REPEAT_COUNT);
+        paidDayColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_PAID_DAY);
+        paidThroughColumn = cursor.getColumnIndexOrThrow(DatabaseHelper.BILL_COLUMN_PAID_THROUGH);
+    }
+
+    /**
+     * Maps the row the cursor is on into BillEntry type. A recurring bill is returned with
+     * its repeat rule and its first due date, and a paid bill with the day it was paid
+     * @param cursor The cursor the mapper was created for
+     * @return BillEntry The bill on the current row
+     */
+    public BillEntry map(Cursor cursor){
+        int dueEpochDay = cursor.getInt(dateColumn);
+        Recurrence recurrence = null;
+        int repeatUnit = cursor.getInt(repeatUnitColumn);
+        if (repeatUnit != Recurrence.NONE){
+            recurrence = new Recurrence(repeatUnit, cursor.getInt(repeatEveryColumn), dueEpochDay,
+                    cursor.isNull(repeatUntilColumn) ?
+                            Recurrence.NO_OCCURRENCE : cursor.getInt(repeatUntilColumn),
+                    cursor.getInt(repeatCountColumn),
+                    cursor.isNull(paidThroughColumn) ?
+                            Recurrence.NOT_PAID : cursor.getInt(paidThroughColumn));
+        }
+        return new BillEntry(cursor.getInt(idColumn), cursor.getString(nameColumn),
+                cursor.getLong(amountColumn), dueEpochDay, cursor.getInt(notificationColumn),
+                recurrence,
+                cursor.isNull(paidDayColumn) ? BillEntry.NOT_PAID : cursor.getInt(paidDayColumn));
+    }
+
+    /**
+     * Maps every row of a cursor over the bills table into BillEntry type. The cursor is
+     * closed once it has been read, or if reading it fails
+     * @param cursor A cursor selecting every column of the bills table
+     * @return ArrayList<BillEntry> The bills of the cursor in BillEntry type
+     */
+    public static ArrayList<BillEntry> readAll(Cursor cursor){
+        try {
+            ArrayList<BillEntry> entries = new ArrayList<>(cursor.getCount());
+            BillRowMapper mapper = new BillRowMapper(cursor);
+            while (cursor.moveToNext()){
+                entries.add(mapper.map(cursor));
+            }
+            return entries;
+        }
+        finally {
+            cursor.close();
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package apps.mohit.billit;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream that bills are written to one at a time, such as an exported file
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public interface BillSink extends Closeable {
+
+    /**
+     * Writes a bill after the ones already written
+     * @param entry The bill to write
+     * @throws IOException if the bill cannot be written
+     */
+    void write(BillEntry entry) throws IOException;
+
+}
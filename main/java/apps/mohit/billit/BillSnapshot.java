@@ -0,0 +1,304 @@
+package apps.mohit.billit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * This class reads and writes a binary snapshot of the unpaid bills, so the home screen
+ * summary and the reminders due can be worked out at startup from a memory mapped file,
+ * before the SQLite database is opened. The file is a fixed size header, one fixed width
+ * record per bill in (date, id) order, and then the UTF-8 titles the records point into.
+ * Recurring bills are stored once with their repeat rule and expanded as they are read,
+ * as DatabaseHelper does. The header holds the format and database versions and a CRC32
+ * of the rest of the file, and a snapshot that does not match them is not opened, so the
+ * caller falls back to SQLite
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillSnapshot {
+
+    static final int MAGIC = 0x42494c53;           // "BILS", the first four bytes of a snapshot
+    static final int FORMAT_VERSION = 1;           // Bumped whenever the layout below changes
+    static final int HEADER_SIZE = 32;             // magic, format, schema, count, titles size, crc, written at
+    static final int RECORD_SIZE = 48;             // The bytes of one bill, see writeRecord
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;      // The mapped file
+    private final int count;              // The number of records
+    private final int titlesStart;        // The offset of the first title byte
+
+    private BillSnapshot(ByteBuffer buffer, int count){
+        this.buffer = buffer;
+        this.count = count;
+        this.titlesStart = HEADER_SIZE + count * RECORD_SIZE;
+    }
+
+    /**
+     * Maps a snapshot file, checking its header and checksum
+     * @param file The snapshot file
+     * @param schemaVersion The version of the database the snapshot must have been taken of
+     * @return BillSnapshot The snapshot, or null if it is missing, of another version, or corrupt
+     */
+    public static BillSnapshot open(File file, int schemaVersion){
+        if (!file.isFile() || file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE){
+            return null;
+        }
+        try {
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer;
+            try {
+                buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+            }
+            finally {
+                // The mapping stays valid once the file is closed
+                input.close();
+            }
+            return of(buffer, schemaVersion);
+        }
+        catch (IOException e){
+            return null;
+        }
+    }
+
+    /**
+     * Reads a snapshot from its bytes, checking its header and checksum
+     * @param buffer The bytes of the snapshot
+     * @param schemaVersion The version of the database the snapshot must have been taken of
+     * @return BillSnapshot The snapshot, or null if it is of another version or corrupt
+     */
+    static BillSnapshot of(ByteBuffer buffer, int schemaVersion){
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ||
+                buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(8) != schemaVersion){
+            return null;
+        }
+        int count = buffer.getInt(12);
+        int titlesSize = buffer.getInt(16);
+        if (count < 0 || titlesSize < 0 ||
+                buffer.capacity() != HEADER_SIZE + (long) count * RECORD_SIZE + titlesSize){
+            return null;
+        }
+        if (buffer.getInt(20) != checksum(buffer, HEADER_SIZE, buffer.capacity())){
+            return null;
+        }
+        return new BillSnapshot(buffer, count);
+    }
+
+    /**
+     * Writes a snapshot of the given bills. The snapshot is written beside the file and then
+     * renamed over it, so a reader never sees half a snapshot
+     * @param file The snapshot file
+     * @param schemaVersion The version of the database the bills were read from
+     * @param bills The unpaid bills, in (date, id) order, with recurring bills once each
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(File file, int schemaVersion, List<BillEntry> bills) throws IOException {
+        byte[][] titles = new byte[bills.size()][];
+        int titlesSize = 0;
+        for (int i = 0; i < bills.size(); i++){
+            String title = bills.get(i).getTitle();
+            titles[i] = (title == null ? "" : title).getBytes(UTF_8);
+            titlesSize += titles[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bills.size() * RECORD_SIZE + titlesSize);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(schemaVersion).putInt(bills.size())
+                .putInt(titlesSize).putInt(0).putLong(System.currentTimeMillis());
+        int titleOffset = 0;
+        for (int i = 0; i < bills.size(); i++){
+            writeRecord(buffer, bills.get(i), titleOffset, titles[i].length);
+            titleOffset += titles[i].length;
+        }
+        for (byte[] title : titles){
+            buffer.put(title);
+        }
+        buffer.putInt(20, checksum(buffer, HEADER_SIZE, buffer.capacity()));
+
+        File temporary = new File(file.getPath() + ".tmp");
+        FileOutputStream output = new FileOutputStream(temporary);
+        try {
+            output.write(buffer.array());
+            output.getFD().sync();
+        }
+        finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file)){
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Writes one bill as id, due day, cents, lead days, the five fields of its repeat rule,
+     * and the offset and length of its title
+     */
+    private static void writeRecord(ByteBuffer buffer, BillEntry entry, int titleOffset,
+                                    int titleLength){
+        Recurrence recurrence = entry.getRecurrence();
+        buffer.putInt(entry.getId());
+        buffer.putInt(entry.getDueEpochDay());
+        buffer.putLong(entry.getAmountCents());
+        buffer.putInt(entry.getLeadDays());
+        if (recurrence == null){
+            buffer.putInt(Recurrence.NONE).putInt(1).putInt(Recurrence.NO_OCCURRENCE)
+                    .putInt(Recurrence.NO_COUNT).putInt(Recurrence.NOT_PAID);
+        }
+        else{
+            buffer.putInt(recurrence.getUnit()).putInt(recurrence.getEvery())
+                    .putInt(recurrence.getUntilDay()).putInt(recurrence.getCount())
+                    .putInt(recurrence.getPaidThroughDay());
+        }
+        buffer.putInt(titleOffset);
+        buffer.putInt(titleLength);
+    }
+
+    /**
+     * Returns the number of bills in the snapshot, counting each recurring bill once
+     * @return int The number of records
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * Reads the bill of the given record. A recurring bill is returned with its first due
+     * date and its repeat rule
+     * @param index The index of the record, in (date, id) order
+     * @return BillEntry The bill
+     */
+    public BillEntry get(int index){
+        int record = HEADER_SIZE + index * RECORD_SIZE;
+        int dueEpochDay = buffer.getInt(record + 4);
+        Recurrence recurrence = recurrence(record, dueEpochDay);
+        byte[] title = new byte[buffer.getInt(record + 44)];
+        read(buffer, titlesStart + buffer.getInt(record + 40), title, title.length);
+        return new BillEntry(buffer.getInt(record), new String(title, UTF_8),
+                buffer.getLong(record + 8), dueEpochDay, buffer.getInt(record + 16), recurrence);
+    }
+
+    /**
+     * Returns the number of unpaid bills and the total amount due that are overdue, due
+     * within a week, due within a month, and overall, as DatabaseHelper.getSummary does.
+     * Only the fixed width fields of each record are read, not the titles
+     * @param today Today as an epoch day
+     * @param oneMonthFromToday The last due date of the month range, as an epoch day
+     * @return BillSummary The counts and totals of each range
+     */
+    public BillSummary summarize(int today, int oneMonthFromToday){
+        int[] bounds = {today - 1, today + 7, oneMonthFromToday,
+                today + DatabaseHelper.RECURRENCE_HORIZON_DAYS};
+        int[] counts = new int[4];
+        long[] cents = new long[4];
+        for (int index = 0; index < count; index++){
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            int day = buffer.getInt(record + 4);
+            long amount = buffer.getLong(record + 8);
+            Recurrence recurrence = recurrence(record, day);
+            if (recurrence == null){
+                int bucket = day <= bounds[0] ? 0 : (day <= bounds[1] ? 1 : (day <= bounds[2] ? 2 : 3));
+                counts[bucket]++;
+                cents[bucket] += amount;
+                continue;
+            }
+            int from = DatabaseHelper.FIRST_DAY;
+            for (int bucket = 0; bucket < 4; bucket++){
+                int occurrences = recurrence.countBetween(from, bounds[bucket]);
+                counts[bucket] += occurrences;
+                cents[bucket] += occurrences * amount;
+                from = bounds[bucket] + 1;
+            }
+        }
+
+        BillSummary summary = new BillSummary();
+        summary.overdueCount = counts[0];
+        summary.overdueCents = cents[0];
+        summary.thisWeekCount = counts[1];
+        summary.thisWeekCents = cents[1];
+        summary.thisMonthCount = counts[1] + counts[2];
+        summary.thisMonthCents = cents[1] + cents[2];
+        summary.allCount = counts[0] + counts[1] + counts[2] + counts[3];
+        summary.allCents = cents[0] + cents[1] + cents[2] + cents[3];
+        return summary;
+    }
+
+    /**
+     * Returns the bills whose reminder falls on the given day, that is whose due date less
+     * their lead days does, for the home screen to list before the database is opened. A
+     * recurring bill is returned as its unpaid occurrence reminded of that day. This lists
+     * the reminders of the day whether or not they have been delivered, which only the
+     * reminders table records
+     * @param day The reminder day, as an epoch day
+     * @return ArrayList<BillEntry> The bills to remind the user of, in (date, id) order
+     */
+    public ArrayList<BillEntry> remindersOn(int day){
+        ArrayList<BillEntry> reminders = new ArrayList<>();
+        for (int index = 0; index < count; index++){
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            int dueEpochDay = buffer.getInt(record + 4);
+            int lead = buffer.getInt(record + 16);
+            if (lead == BillFormat.NO_NOTIFICATION){
+                continue;
+            }
+            Recurrence recurrence = recurrence(record, dueEpochDay);
+            if (recurrence == null){
+                if (dueEpochDay - lead == day){
+                    reminders.add(get(index));
+                }
+            }
+            else if (recurrence.nextOnOrAfter(day + lead) == day + lead){
+                reminders.add(get(index).occurrenceOn(day + lead));
+            }
+        }
+        Collections.sort(reminders, BillEntry.DUE_ORDER);
+        return reminders;
+    }
+
+    /**
+     * Returns the repeat rule of a record, or null if the bill does not repeat
+     */
+    private Recurrence recurrence(int record, int startDay){
+        int unit = buffer.getInt(record + 20);
+        if (unit == Recurrence.NONE){
+            return null;
+        }
+        return new Recurrence(unit, buffer.getInt(record + 24), startDay, buffer.getInt(record + 28),
+                buffer.getInt(record + 32), buffer.getInt(record + 36));
+    }
+
+    /**
+     * Returns the CRC32 of the given bytes of the buffer
+     */
+    private static int checksum(ByteBuffer buffer, int start, int end){
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        for (int position = start; position < end; position += chunk.length){
+            int length = Math.min(chunk.length, end - position);
+            read(buffer, position, chunk, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Copies the given number of bytes of the buffer, from the given position, in one bulk
+     * get. A duplicate of the buffer is read so its own position is left alone, and records
+     * can be read from several threads at once
+     */
+    private static void read(ByteBuffer buffer, int position, byte[] bytes, int length){
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(bytes, 0, length);
+    }
+
+}
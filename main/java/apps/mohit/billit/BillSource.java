@@ -0,0 +1,25 @@
+package apps.mohit.billit;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of bills read one at a time, such as the rows of an imported file. Only the bill
+ * being read is held in memory, so a source can be larger than the memory available
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public interface BillSource extends Closeable {
+
+    /**
+     * Reads the next bill
+     * @return BillEntry The next bill, or null once every bill has been read
+     * @throws IOException if the source cannot be read or is not in the expected format
+     * @throws NumberFormatException if a value of the bill is malformed. The rest of the
+     *                               bill is skipped, and the next call reads the bill after it
+     */
+    BillEntry next() throws IOException;
+
+}
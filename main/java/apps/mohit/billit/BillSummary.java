@@ -0,0 +1,23 @@
+package apps.mohit.billit;
+
+/**
+ * This class holds the number of bills and the total amount due in each of the date ranges
+ * shown on the home screen. The week and month ranges start today, so overdue bills are
+ * only counted in the overdue and overall figures
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class BillSummary {
+
+    public int overdueCount;          // Bills due before today
+    public long overdueCents;
+    public int thisWeekCount;         // Bills due from today to one week from now
+    public long thisWeekCents;
+    public int thisMonthCount;        // Bills due from today to one month from now
+    public long thisMonthCents;
+    public int allCount;              // Every bill in the database
+    public long allCents;
+
+}
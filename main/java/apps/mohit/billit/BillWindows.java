@@ -0,0 +1,79 @@
+package apps.mohit.billit;
+
+import java.util.List;
+
+/**
+ * This class holds the bills of every view of the bill list from a single date ordered
+ * query. The bills are kept in BillColumns, and the bills due this week and this month are
+ * each a run of them, starting at the first bill due today, found by binary search on the
+ * due dates rather than queried again. Switching between the views is then done in memory,
+ * and a bill is only read into BillEntry type once its row of the list is shown
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class BillWindows {
+
+    private final BillColumns columns;     // Every bill, ordered by due date and id
+    private final int today;               // The first due date of the week and month views
+    private final int oneMonthFromToday;   // The last due date of the month view
+
+    private BillWindows(BillColumns columns, int today, int oneMonthFromToday){
+        this.columns = columns;
+        this.today = today;
+        this.oneMonthFromToday = oneMonthFromToday;
+    }
+
+    /**
+     * Splits the bills into the views of the bill list
+     * @param columns Every bill, ordered by due date and id
+     * @param today Today as an epoch day
+     * @param oneMonthFromToday The last due date of the month view, as an epoch day
+     * @return BillWindows The views over the bills
+     */
+    public static BillWindows of(BillColumns columns, int today, int oneMonthFromToday){
+        return new BillWindows(columns, today, oneMonthFromToday);
+    }
+
+    public BillColumns getColumns(){
+        return columns;
+    }
+
+    public List<BillEntry> getAll(){
+        return columns.between(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    public List<BillEntry> getThisMonth(){
+        return columns.between(today, oneMonthFromToday);
+    }
+
+    public List<BillEntry> getThisWeek(){
+        return columns.between(today, today + 7);
+    }
+
+    /**
+     * Returns the counts and totals of the bills in each range of the home screen summary
+     * @return BillSummary The counts and totals, as DatabaseHelper.getSummary returns them
+     */
+    public BillSummary getSummary(){
+        return columns.summarize(today, oneMonthFromToday);
+    }
+
+    /**
+     * Returns the bills of the view the bill list was opened with
+     * @param viewChoice "thisWeek", "thisMonth", or anything else for every bill
+     * @return List<BillEntry> The bills of the view, ordered by due date and id
+     */
+    public List<BillEntry> get(String viewChoice){
+        switch (viewChoice){
+            case "thisMonth":
+                return getThisMonth();
+            case "thisWeek":
+                return getThisWeek();
+            default:
+                return getAll();
+        }
+    }
+
+}
@@ -2,13 +2,33 @@ package apps.mohit.billit;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is the type class for a Bill. It has the associated properties as fields which
@@ -20,102 +40,985 @@ import java.util.Calendar;
  */
 public class DatabaseHelper extends SQLiteOpenHelper{
 
-    private static final String DATABASE_NAME = "BillList.db";       // The name of the table schema in the database
     private static final String BILL_TABLE_NAME = "bills";           // The title of the bills table
-    private static final String BILL_COLUMN_ID = "id";               // The title of the id column
-    private static final String BILL_COLUMN_NAME = "name";           // The title of the name column
-    private static final String BILL_COLUMN_AMOUNT = "amount";       // The title of the amount column
-    private static final String BILL_COLUMN_DUEDATE = "date";        // The title of the date column
-    private static final String BILL_NOTIFICATION_CHOICE = "notification";  // The title of the notifications column
+    static final String BILL_COLUMN_ID = "id";                       // The title of the id column
+    static final String BILL_COLUMN_NAME = "name";                   // The title of the name column
+    static final String BILL_COLUMN_AMOUNT = "amount";               // The title of the amount column
+    static final String BILL_COLUMN_DUEDATE = "date";                // The title of the date column
+    static final String BILL_NOTIFICATION_CHOICE = "notification";   // The title of the notifications column
+    static final String BILL_COLUMN_REPEAT_UNIT = "repeat_unit";     // The title of the repeat unit column
+    static final String BILL_COLUMN_REPEAT_EVERY = "repeat_every";   // The title of the repeat interval column
+    static final String BILL_COLUMN_REPEAT_UNTIL = "repeat_until";   // The title of the repeat end date column
+    static final String BILL_COLUMN_REPEAT_COUNT = "repeat_count";   // The title of the repeat count column
+    static final String BILL_COLUMN_PAID_DAY = "paid_day";           // The title of the paid day column
+    static final String BILL_COLUMN_PAID_THROUGH = "paid_through";   // The title of the paid through column
+    private static final String REMINDER_TABLE_NAME = "reminders";   // The title of the reminders table
+    private static final String HISTORY_TABLE_NAME = "bills_history";   // The title of the archived bills table
+    private static final int DATABASE_VERSION = 11;                  // The current version of the database schema
+    private static final String TAG = "DatabaseHelper";             // The tag of the messages logged
+    private static final String SNAPSHOT_SUFFIX = "-snapshot";       // Added to the database path to name its BillSnapshot
+    private static final String ACCOUNT_PREFERENCES = "accounts";    // The preferences holding the active account
+    private static final String ACTIVE_ACCOUNT = "activeAccount";
+
+    public static final int NO_LIMIT = -1;                           // Passed as a limit to return every matching record
+    public static final int FIRST_DAY = Integer.MIN_VALUE;           // The earliest due date a range can start from
+    public static final int LAST_DAY = Integer.MAX_VALUE;            // The latest due date a range can end on
+    public static final int IMPORT_CHUNK_SIZE = 500;                 // The number of bills inserted per transaction on import
+    public static final int RECURRENCE_HORIZON_DAYS = 366;           // How far past today recurring bills are expanded
+    public static final int ARCHIVE_AFTER_DAYS = 90;                 // How long paid bills stay before they are archived
+    public static final int ARCHIVE_BATCH_SIZE = 500;                // The number of bills archived per transaction
+
+    // The columns of the bills table
+    private static final String BILL_COLUMNS =
+            "(id integer primary key, name text, amount integer, date integer, notification integer, " +
+                    "repeat_unit integer not null default 0, repeat_every integer not null default 1, " +
+                    "repeat_until integer, repeat_count integer not null default 0, last_date integer, " +
+                    "paid_day integer, paid_through integer)";
+    // The columns of the bills_history table. A bill keeps its id, but a row of its own is
+    // the key, as the id of an archived bill can be given to a new bill and archived again
+    private static final String HISTORY_COLUMNS =
+            "(history_id integer primary key, id integer not null, name text, amount integer, " +
+                    "date integer, notification integer, " +
+                    "repeat_unit integer not null default 0, repeat_every integer not null default 1, " +
+                    "repeat_until integer, repeat_count integer not null default 0, last_date integer, " +
+                    "paid_day integer, paid_through integer)";
+    private static final String BILL_COLUMN_NAMES = "id, name, amount, date, notification, " +
+            "repeat_unit, repeat_every, repeat_until, repeat_count, last_date, paid_day, paid_through";
+
+    // The compiled statements of the scalar queries and small writes, keyed by their SQL
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    private final String account;                                    // The account whose bills this database holds
+    private final BillCache billCache;                               // The bills of the cached due date window
+    private final File snapshotFile;                                 // The BillSnapshot of the unpaid bills
+    private final AtomicLong snapshotGeneration = new AtomicLong();  // Bumped by every write, so a stale snapshot is dropped
+    private final AtomicBoolean snapshotQueued = new AtomicBoolean();   // True while a snapshot is waiting to be written
+    private SQLiteDatabase statementDatabase;                        // The database the statements were compiled on
+
+    private static volatile DatabaseHelper instance;                 // The helper of the active account
+    // The helper of every account opened so far, keyed by the path of its database
+    private static final Map<String, DatabaseHelper> ACCOUNT_HELPERS = new HashMap<>();
+
+    // Listeners told about every change made to the bills table, delivered on the main thread
+    private static final Set<ChangeListener> CHANGE_LISTENERS = new CopyOnWriteArraySet<>();
+    // Listeners told about the changes made to the bills table of every account
+    private static final Set<AccountChangeListener> ACCOUNT_CHANGE_LISTENERS = new CopyOnWriteArraySet<>();
+    private static final Handler MAIN_THREAD = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the changes made to the bills table
+     */
+    public interface ChangeListener {
+        void onBillChanged(BillChange change);
+    }
+
+    /**
+     * Receives the changes made to the bills table of any account
+     */
+    public interface AccountChangeListener {
+        void onBillChanged(String account, BillChange change);
+    }
+
+    /**
+     * Returns the helper of the active account, which the whole application shares. It is
+     * created the first time it is asked for and kept open for the life of the process, so
+     * the database is opened once rather than by every Activity
+     * @param context Any context of the application
+     * @return DatabaseHelper The shared helper
+     */
+    public static DatabaseHelper getInstance(Context context){
+        if (instance == null){
+            synchronized (DatabaseHelper.class){
+                if (instance == null){
+                    Context appContext = context.getApplicationContext();
+                    String account = accountPreferences(appContext)
+                            .getString(ACTIVE_ACCOUNT, BillAccounts.DEFAULT_ACCOUNT);
+                    instance = getInstance(appContext,
+                            BillAccounts.isValid(account) ? account : BillAccounts.DEFAULT_ACCOUNT);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the helper of the given account. Each account's helper is created the first
+     * time it is asked for and then kept open, so switching back to an account, or reading
+     * every account for a report, does not open its database again
+     * @param context Any context of the application
+     * @param account The name of the account
+     * @return DatabaseHelper The helper of the account
+     * @throws IllegalArgumentException if the account name is not valid
+     */
+    public static DatabaseHelper getInstance(Context context, String account){
+        Context appContext = context.getApplicationContext();
+        String databasePath = appContext.getDatabasePath(BillAccounts.databaseName(account)).getPath();
+        synchronized (DatabaseHelper.class){
+            DatabaseHelper helper = ACCOUNT_HELPERS.get(databasePath);
+            if (helper == null){
+                helper = new DatabaseHelper(appContext, account, null);
+                ACCOUNT_HELPERS.put(databasePath, helper);
+            }
+            return helper;
+        }
+    }
+
+    /**
+     * Makes the given account the active one, creating its database if it is new, and
+     * remembers it for the next start. The process keeps running and the helper of the
+     * account left stays open. Screens opened from now on read the new account, and every
+     * change listener is sent a reset so it reloads
+     * @param context Any context of the application
+     * @param account The name of the account
+     * @return DatabaseHelper The helper of the account, which getInstance returns from now on
+     * @throws IllegalArgumentException if the account name is not valid
+     */
+    public static DatabaseHelper switchAccount(Context context, String account){
+        DatabaseHelper helper = getInstance(context, account);
+        synchronized (DatabaseHelper.class){
+            if (instance == helper){
+                return helper;
+            }
+            instance = helper;
+        }
+        accountPreferences(context.getApplicationContext()).edit()
+                .putString(ACTIVE_ACCOUNT, account).apply();
+        helper.notifyListeners(BillChange.RESET);
+        return helper;
+    }
+
+    /**
+     * Returns every account that has a database on the device, the active one included
+     * @param context Any context of the application
+     * @return List<String> The names of the accounts, in alphabetical order
+     */
+    public static List<String> getAccounts(Context context){
+        List<String> accounts = BillAccounts.accountsOf(context.getApplicationContext().databaseList());
+        String active = getInstance(context).getAccount();
+        if (!accounts.contains(active)){
+            accounts.add(active);
+            Collections.sort(accounts);
+        }
+        return accounts;
+    }
+
+    /**
+     * Works out the home screen summary of each of the given accounts, reading their
+     * databases in parallel. This blocks until every account is read, and so is run off the
+     * UI thread
+     * @param context Any context of the application
+     * @param accounts The names of the accounts
+     * @return Map<String, BillSummary> The summary of each account, in the order given
+     * @throws IllegalArgumentException if an account name is not valid
+     */
+    public static Map<String, BillSummary> summarizeAccounts(Context context, List<String> accounts){
+        List<DatabaseHelper> helpers = new ArrayList<>(accounts.size());
+        for (String account : accounts){
+            helpers.add(getInstance(context, account));
+        }
+        return summarize(helpers);
+    }
 
     /**
-     * The constructor of the database
+     * Works out the home screen summary of each of the given databases in parallel. Every
+     * account has its own database, connection and cache, so the reads do not wait on one
+     * another, and the pool is the caller's own so it never waits on the AsyncDatabase
+     * readers it may be running on
+     * @param helpers The helpers of the accounts
+     * @return Map<String, BillSummary> The summary of each account, in the order given
+     */
+    static Map<String, BillSummary> summarize(List<DatabaseHelper> helpers){
+        Map<String, Future<BillSummary>> pending = new LinkedHashMap<>();
+        ExecutorService readers = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(helpers.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            for (final DatabaseHelper helper : helpers){
+                pending.put(helper.getAccount(), readers.submit(new Callable<BillSummary>() {
+                    @Override
+                    public BillSummary call() throws Exception {
+                        return helper.getSummary();
+                    }
+                }));
+            }
+            Map<String, BillSummary> summaries = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<BillSummary>> entry : pending.entrySet()){
+                summaries.put(entry.getKey(), entry.getValue().get());
+            }
+            return summaries;
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted reading the accounts", e);
+        }
+        catch (ExecutionException e){
+            throw new SQLException("Could not read the accounts", e.getCause());
+        }
+        finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private static SharedPreferences accountPreferences(Context context){
+        return context.getSharedPreferences(ACCOUNT_PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * The constructor of the database of the default account. The application uses
+     * getInstance, this is used by the tests to open a throwaway copy of the database
      * @param context The context from which the class was initialized
      */
     public DatabaseHelper(Context context){
-        super(context, DATABASE_NAME, null, 2);
+        this(context, BillAccounts.DEFAULT_ACCOUNT, null);
+    }
+
+    /**
+     * The constructor of the database of the given account. The application uses
+     * getInstance, this is used by the tests to open throwaway accounts
+     * @param context The context from which the class was initialized
+     * @param account The name of the account
+     * @throws IllegalArgumentException if the account name is not valid
+     */
+    public DatabaseHelper(Context context, String account){
+        this(context, account, null);
+    }
+
+    /**
+     * The constructor of the database of the default account with a factory for the cursors
+     * it opens, which the tests use to track the cursors left open
+     * @param context The context from which the class was initialized
+     * @param cursorFactory Creates the cursors of every query, or null for the default
+     */
+    DatabaseHelper(Context context, SQLiteDatabase.CursorFactory cursorFactory){
+        this(context, BillAccounts.DEFAULT_ACCOUNT, cursorFactory);
+    }
+
+    /**
+     * The constructor of the database of the given account. Each account's bills are kept
+     * in a database file of their own, so the cache and the snapshot, which are keyed by the
+     * path of the database, are kept apart too
+     * @param context The context from which the class was initialized
+     * @param account The name of the account
+     * @param cursorFactory Creates the cursors of every query, or null for the default
+     * @throws IllegalArgumentException if the account name is not valid
+     */
+    DatabaseHelper(Context context, String account, SQLiteDatabase.CursorFactory cursorFactory){
+        super(context, BillAccounts.databaseName(account), cursorFactory, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+        this.account = account;
+        String databasePath = context.getDatabasePath(BillAccounts.databaseName(account)).getPath();
+        billCache = BillCache.forDatabase(databasePath);
+        snapshotFile = new File(databasePath + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Returns the account whose bills this database holds
+     * @return String The name of the account
+     */
+    public String getAccount(){
+        return account;
+    }
+
+    /**
+     * Returns the in-memory cache that date range queries are answered from, shared by
+     * every helper of this database
+     * @return BillCache The cache, whose hit and miss counts can be read
+     */
+    public BillCache getBillCache(){
+        return billCache;
+    }
+
+    /**
+     * Tunes the connection each time the database is opened. With write-ahead logging on,
+     * reads on the reader threads never wait for the writer, and the log only has to reach
+     * the disk at checkpoints, so synchronous NORMAL is safe. The page cache is raised to 2MB
+     * so the bills table and its indexes stay in memory
+     * @param db The database being opened
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        db.execSQL("PRAGMA cache_size = -2048");
     }
 
     /**
-     * Executes the SQL command to create a local database
+     * Executes the SQL command to create a local database. Amounts are stored in cents, due
+     * dates as epoch days and the notification choice as the number of days before due.
+     * A recurring bill is stored once, with its first due date in the date column, its
+     * repeat rule in the repeat columns and the last day it can fall on in last_date.
+     * A paid bill has the day it was paid in paid_day, and a recurring bill the due date
+     * of the last occurrence paid in paid_through
      * @param db The database that executes the SQL command
      */
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(
-                "create table bills " +
-                        "(id integer primary key, name text, amount text, date text, notification text)"
-        );
+        db.execSQL("create table bills " + BILL_COLUMNS);
+        createDateIndex(db);
+        createReminderTable(db);
+        createReminderDelivery(db);
+        createSearchTable(db);
+        createHistoryTable(db);
     }
 
     /**
-     * Checks the version before adding the database
+     * Creates the indexes the date range queries and the archive are answered from. The
+     * date index only covers the bills not paid yet, which are the only ones listed,
+     * summed or reminded of, so paid bills waiting to be archived never slow those queries
+     * down. It leads with the repeat unit so the bills that do not repeat are a single range
+     * of it; the id is included so records on the same day come back in a stable order, and
+     * the amount so that totals over a date range are read from the index alone. The paid
+     * index only covers the paid bills, in the order they are archived
+     * @param db The SQLite database
+     */
+    private void createDateIndex(SQLiteDatabase db){
+        db.execSQL("create index if not exists bills_unpaid_date on bills (repeat_unit, date, id, amount) where paid_day is null");
+        db.execSQL("create index if not exists bills_paid_day on bills (paid_day, id) where paid_day is not null");
+    }
+
+    /**
+     * Creates the table the paid bills are archived into, with the columns of bills and a
+     * row id of its own
+     * @param db The SQLite database
+     */
+    private void createHistoryTable(SQLiteDatabase db){
+        db.execSQL("create table bills_history " + HISTORY_COLUMNS);
+    }
+
+    /**
+     * Checks the version before adding the database. Databases from version 2 on keep their
+     * bills and are brought up to date in place, one version at a time. SQLiteOpenHelper
+     * already runs this method inside a single transaction, so a failed step leaves the
+     * database as it was
      * @param db The SQLite database
      * @param oldVersion The old version of the database
      * @param newVersion The new version available of the database
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS bills");
-        onCreate(db);
+        if (oldVersion < 2){
+            db.execSQL("DROP TABLE IF EXISTS bills");
+            onCreate(db);
+            return;
+        }
+        if (oldVersion < 3){
+            upgradeToTypedColumns(db);
+        }
+        if (oldVersion < 5){
+            db.execSQL("drop index if exists bills_date_id");
+        }
+        if (oldVersion < 6){
+            createReminderTable(db);
+            db.execSQL(
+                    "insert into reminders (bill_id, fire_day) " +
+                            "select id, date - notification from bills where notification != 0"
+            );
+        }
+        if (oldVersion < 7){
+            db.execSQL("drop index if exists bills_date_id_amount");
+            db.execSQL("alter table bills add column repeat_unit integer not null default 0");
+            db.execSQL("alter table bills add column repeat_every integer not null default 1");
+            db.execSQL("alter table bills add column repeat_until integer");
+            db.execSQL("alter table bills add column repeat_count integer not null default 0");
+            db.execSQL("alter table bills add column last_date integer");
+            db.execSQL("update bills set last_date = date");
+        }
+        if (oldVersion < 8){
+            createSearchTable(db);
+            db.execSQL("insert into bills_search (bills_search) values ('rebuild')");
+        }
+        if (oldVersion < 9){
+            db.execSQL("drop index if exists bills_repeat_date_id_amount");
+            db.execSQL("alter table bills add column paid_day integer");
+            db.execSQL("alter table bills add column paid_through integer");
+            createDateIndex(db);
+            createHistoryTable(db);
+        }
+        if (oldVersion < 10){
+            createReminderDelivery(db);
+            // Reminders used to be delivered up to a single day kept in the preferences, so
+            // only the reminders that fire from today on are taken as still to deliver
+            db.execSQL("update reminders set delivered = 1 where fire_day < ?",
+                    new Object[]{DueDates.today()});
+        }
+        if (oldVersion < 11){
+            // The history was keyed by the bill id, so archiving a bill that reused the id
+            // of an archived bill replaced its row
+            db.execSQL("alter table bills_history rename to bills_history_v10");
+            createHistoryTable(db);
+            db.execSQL("insert into bills_history (" + BILL_COLUMN_NAMES + ") select " +
+                    BILL_COLUMN_NAMES + " from bills_history_v10");
+            db.execSQL("drop table bills_history_v10");
+        }
+    }
+
+    /**
+     * Creates the full-text index over the bill titles that searches are answered from.
+     * It is an FTS4 table that reads the titles from the bills table rather than keeping a
+     * copy of them, and the triggers keep it in step with every insert, title change and
+     * delete, including those made outside this class
+     * @param db The SQLite database
+     */
+    private void createSearchTable(SQLiteDatabase db){
+        db.execSQL("create virtual table bills_search using fts4 (content=\"bills\", name)");
+        db.execSQL(
+                "create trigger bills_search_before_update before update of name on bills begin " +
+                        "delete from bills_search where docid = old.id; end"
+        );
+        db.execSQL(
+                "create trigger bills_search_before_delete before delete on bills begin " +
+                        "delete from bills_search where docid = old.id; end"
+        );
+        db.execSQL(
+                "create trigger bills_search_after_update after update of name on bills begin " +
+                        "insert into bills_search (docid, name) values (new.id, new.name); end"
+        );
+        db.execSQL(
+                "create trigger bills_search_after_insert after insert on bills begin " +
+                        "insert into bills_search (docid, name) values (new.id, new.name); end"
+        );
+    }
+
+    /**
+     * Creates the table holding the day each bill's reminder is due to fire, with an index
+     * on that day so the reminders of a day are found without reading the bills table.
+     * A bill without a reminder has no row, and the rows are kept in step with the bills
+     * by every insert, update and delete
+     * @param db The SQLite database
+     */
+    private void createReminderTable(SQLiteDatabase db){
+        db.execSQL("create table reminders (bill_id integer primary key, fire_day integer not null)");
+        db.execSQL("create index reminders_fire_day on reminders (fire_day, bill_id)");
+    }
+
+    /**
+     * Marks each reminder as delivered or not, so a reminder saved after the reminders of its
+     * day were delivered is still delivered, rather than skipped because its day has passed.
+     * The partial index covers only the reminders still to deliver, so the next one is found
+     * without reading the delivered ones
+     * @param db The SQLite database
+     */
+    private void createReminderDelivery(SQLiteDatabase db){
+        db.execSQL("alter table reminders add column delivered integer not null default 0");
+        db.execSQL("create index reminders_pending on reminders (fire_day) where delivered = 0");
+    }
+
+    /**
+     * Replaces the reminder of a bill with one that fires the given number of days before
+     * it is due, or removes it if no notification was chosen. A reminder that still fires on
+     * the same day keeps whether it was delivered, so editing a bill does not remind the user
+     * of it again, while a reminder moved to another day is delivered afresh. This is called
+     * inside the transaction that writes the bill
+     * @param id The id of the bill
+     * @param dueEpochDay The due date of the bill as an epoch day
+     * @param leadDays The number of days before due to notify the user
+     */
+    private void writeReminder(long id, int dueEpochDay, int leadDays){
+        if (leadDays == BillFormat.NO_NOTIFICATION){
+            deleteReminder(id);
+            return;
+        }
+        SQLiteStatement replace = statement(
+                "insert or replace into reminders (bill_id, fire_day, delivered) values (?, ?, " +
+                        "ifnull((select delivered from reminders where bill_id = ? and fire_day = ?), 0))");
+        synchronized (replace){
+            replace.bindLong(1, id);
+            replace.bindLong(2, dueEpochDay - leadDays);
+            replace.bindLong(3, id);
+            replace.bindLong(4, dueEpochDay - leadDays);
+            replace.executeInsert();
+        }
+    }
+
+    /**
+     * Replaces the reminder of a recurring bill with one for its first occurrence whose
+     * reminder fires on or after the given day, or removes it if no notification was chosen
+     * or the bill has no occurrences left. This is called inside the transaction that writes
+     * the bill, and again once the reminder has been delivered
+     * @param id The id of the bill
+     * @param recurrence The repeat rule of the bill
+     * @param leadDays The number of days before due to notify the user
+     * @param fromDay The earliest day the reminder may fire on, as an epoch day
+     */
+    private void writeRecurringReminder(long id, Recurrence recurrence, int leadDays, int fromDay){
+        int dueEpochDay = leadDays == BillFormat.NO_NOTIFICATION ?
+                Recurrence.NO_OCCURRENCE : recurrence.nextOnOrAfter(fromDay + leadDays);
+        if (dueEpochDay == Recurrence.NO_OCCURRENCE){
+            deleteReminder(id);
+            return;
+        }
+        writeReminder(id, dueEpochDay, leadDays);
+    }
+
+    /**
+     * Removes the reminder of a bill, if it has one. This is called inside the transaction
+     * that writes the bill
+     * @param id The id of the bill
+     */
+    private void deleteReminder(long id){
+        SQLiteStatement delete = statement("delete from reminders where bill_id = ?");
+        synchronized (delete){
+            delete.bindLong(1, id);
+            delete.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Returns the compiled statement for the given SQL, compiling it the first time it is
+     * asked for. The statements are kept for as long as the database stays open, so the SQL
+     * is parsed and planned once rather than on every call. A statement's arguments must be
+     * bound and the statement run while holding its lock, as reads run on several threads
+     * @param sql The SQL of the statement, with ? in place of every argument
+     * @return SQLiteStatement The compiled statement
+     */
+    private synchronized SQLiteStatement statement(String sql){
+        SQLiteDatabase db = this.getReadableDatabase();
+        if (db != statementDatabase){
+            closeStatements();
+            statementDatabase = db;
+        }
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null){
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private void closeStatements(){
+        for (SQLiteStatement statement : statements.values()){
+            statement.close();
+        }
+        statements.clear();
+    }
+
+    /**
+     * Closes the compiled statements along with the database
+     */
+    @Override
+    public synchronized void close(){
+        closeStatements();
+        statementDatabase = null;
+        super.close();
+    }
+
+    /**
+     * Converts the version 2 bills table, where every column was text, into the typed
+     * version 3 table. The amount is converted to cents, the yyyy-MM-dd due date to an
+     * epoch day, and the notification choice to the number of days before due. The text is
+     * parsed here rather than cast in SQL, which would turn an amount such as "12,50" into 0
+     * and a date in any other format into null without a word. A bill whose amount or date
+     * cannot be read is moved to the bills_unconverted table with its text as it was saved,
+     * so nothing is lost, and the number of such bills is logged
+     * @param db The SQLite database
+     */
+    private void upgradeToTypedColumns(SQLiteDatabase db){
+        db.execSQL(
+                "create table bills_v3 " +
+                        "(id integer primary key, name text, amount integer, date integer, notification integer)"
+        );
+        db.execSQL(
+                "create table bills_unconverted " +
+                        "(id integer primary key, name text, amount text, date text, notification text)"
+        );
+        SQLiteStatement converted = db.compileStatement(
+                "insert into bills_v3 (id, name, amount, date, notification) values (?, ?, ?, ?, ?)");
+        SQLiteStatement unconverted = db.compileStatement(
+                "insert into bills_unconverted (id, name, amount, date, notification) " +
+                        "select id, name, amount, date, notification from bills where id = ?");
+        int failed = 0;
+        Cursor res = db.rawQuery("select id, name, amount, date, notification from bills", null);
+        try {
+            while (res.moveToNext()){
+                long id = res.getLong(0);
+                long cents;
+                int dueEpochDay;
+                try {
+                    if (res.isNull(3)){
+                        throw new NumberFormatException("No due date");
+                    }
+                    cents = BillFormat.parseLegacyCents(res.getString(2));
+                    dueEpochDay = DueDates.parse(res.getString(3));
+                }
+                catch (NumberFormatException e){
+                    unconverted.bindLong(1, id);
+                    unconverted.executeInsert();
+                    failed++;
+                    continue;
+                }
+                String choice = res.getString(4);
+                converted.bindLong(1, id);
+                if (res.isNull(1)){
+                    converted.bindNull(2);
+                }
+                else{
+                    converted.bindString(2, res.getString(1));
+                }
+                converted.bindLong(3, cents);
+                converted.bindLong(4, dueEpochDay);
+                converted.bindLong(5, choice == null ? BillFormat.NO_NOTIFICATION : BillFormat.leadDaysFor(choice));
+                converted.executeInsert();
+            }
+        }
+        finally {
+            res.close();
+            converted.close();
+            unconverted.close();
+        }
+        if (failed > 0){
+            Log.w(TAG, failed + " bills could not be converted and were kept in bills_unconverted");
+        }
+        db.execSQL("drop table bills");
+        db.execSQL("alter table bills_v3 rename to bills");
     }
 
     /**
      * Inserts a bill into the database
      * @param name Name on the bill
-     * @param amount The amount on the bill
-     * @param date The due date of the bill
-     * @param notification The notification choice of the bill entry
+     * @param amountCents The amount on the bill in cents
+     * @param dueEpochDay The due date of the bill as an epoch day
+     * @param leadDays The number of days before due to notify the user
+     * @return boolean Returns true if the add was successful
+     */
+    public boolean insertBill(String name, long amountCents, int dueEpochDay, int leadDays){
+        return insertBill(name, amountCents, dueEpochDay, leadDays, null);
+    }
+
+    /**
+     * Inserts a bill into the database, which repeats by the given rule. Only the rule is
+     * stored; the occurrences are worked out when a date range is queried
+     * @param name Name on the bill
+     * @param amountCents The amount on the bill in cents
+     * @param dueEpochDay The first due date of the bill as an epoch day
+     * @param leadDays The number of days before due to notify the user
+     * @param recurrence The repeat rule, or null if the bill does not repeat
      * @return boolean Returns true if the add was successful
      */
-    public boolean insertBill(String name, String amount, String date, String notification){
+    public boolean insertBill(String name, long amountCents, int dueEpochDay, int leadDays,
+                              Recurrence recurrence){
+        if (recurrence != null){
+            recurrence = recurrence.startingOn(dueEpochDay);
+        }
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues contentValues = new ContentValues();
         contentValues.put("name", name);
-        contentValues.put("amount", amount);
-        contentValues.put("date", String.valueOf(date));
-        contentValues.put("notification", notification);
-        db.insert("bills", null, contentValues);
+        contentValues.put("amount", amountCents);
+        contentValues.put("date", dueEpochDay);
+        contentValues.put("notification", leadDays);
+        putRecurrence(contentValues, dueEpochDay, recurrence);
+
+        long id;
+        db.beginTransaction();
+        try {
+            id = db.insert("bills", null, contentValues);
+            if (id == -1){
+                return false;
+            }
+            if (recurrence == null){
+                writeReminder(id, dueEpochDay, leadDays);
+            }
+            else{
+                writeRecurringReminder(id, recurrence, leadDays, DueDates.today());
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+        }
+        if (recurrence != null){
+            billCache.invalidate();
+            notifyChange(BillChange.RESET);
+            return true;
+        }
+        BillEntry inserted = new BillEntry((int) id, name, amountCents, dueEpochDay, leadDays);
+        billCache.put(inserted);
+        notifyChange(new BillChange(null, inserted));
         return true;
     }
 
     /**
-     * Returns a cursor containing the single queried record with a given id
+     * Adds the repeat columns of a bill to the values written for it. A bill that does not
+     * repeat gets the column defaults, with its due date as its last date
+     * @param contentValues The values of the bill's row
+     * @param dueEpochDay The first due date of the bill as an epoch day
+     * @param recurrence The repeat rule, or null if the bill does not repeat
+     */
+    private static void putRecurrence(ContentValues contentValues, int dueEpochDay,
+                                      Recurrence recurrence){
+        if (recurrence == null){
+            contentValues.put(BILL_COLUMN_REPEAT_UNIT, Recurrence.NONE);
+            contentValues.put(BILL_COLUMN_REPEAT_EVERY, 1);
+            contentValues.putNull(BILL_COLUMN_REPEAT_UNTIL);
+            contentValues.put(BILL_COLUMN_REPEAT_COUNT, Recurrence.NO_COUNT);
+            contentValues.put("last_date", dueEpochDay);
+            contentValues.putNull(BILL_COLUMN_PAID_THROUGH);
+            return;
+        }
+        contentValues.put(BILL_COLUMN_REPEAT_UNIT, recurrence.getUnit());
+        contentValues.put(BILL_COLUMN_REPEAT_EVERY, recurrence.getEvery());
+        if (recurrence.getUntilDay() == Recurrence.NO_OCCURRENCE){
+            contentValues.putNull(BILL_COLUMN_REPEAT_UNTIL);
+        }
+        else{
+            contentValues.put(BILL_COLUMN_REPEAT_UNTIL, recurrence.getUntilDay());
+        }
+        contentValues.put(BILL_COLUMN_REPEAT_COUNT, recurrence.getCount());
+        contentValues.put("last_date", recurrence.lastDay());
+        if (recurrence.getPaidThroughDay() == Recurrence.NOT_PAID){
+            contentValues.putNull(BILL_COLUMN_PAID_THROUGH);
+        }
+        else{
+            contentValues.put(BILL_COLUMN_PAID_THROUGH, recurrence.getPaidThroughDay());
+        }
+    }
+
+    /**
+     * Inserts many bills in a single transaction. One compiled insert statement is reused for
+     * every bill, so the batch costs one commit rather than one per bill. A bill that cannot
+     * be inserted is recorded in the result and skipped, and the rest of the batch is still
+     * inserted. The ids of the given entries are ignored and new ids are assigned. A
+     * recurring bill keeps its repeat rule and the occurrences already paid, and its reminder
+     * is set for its next unpaid occurrence
+     * @param entries The bills to insert
+     * @return BatchInsertResult The number of bills inserted and the bills that failed
+     */
+    public BatchInsertResult insertBills(Iterable<BillEntry> entries){
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement insertBill = db.compileStatement(
+                "insert into bills (name, amount, date, notification, repeat_unit, repeat_every, " +
+                        "repeat_until, repeat_count, last_date, paid_through) " +
+                        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement insertReminder = db.compileStatement(
+                "insert into reminders (bill_id, fire_day) values (?, ?)");
+        BatchInsertResult result = new BatchInsertResult();
+        int today = DueDates.today();
+        int row = 0;
+        db.beginTransaction();
+        try {
+            for (BillEntry entry : entries){
+                if (entry == null || entry.getTitle() == null){
+                    result.addFailure(row++, entry, "The bill has no title");
+                    continue;
+                }
+                try {
+                    insertBill.bindString(1, entry.getTitle());
+                    insertBill.bindLong(2, entry.getAmountCents());
+                    insertBill.bindLong(3, entry.getDueEpochDay());
+                    insertBill.bindLong(4, entry.getLeadDays());
+                    Recurrence recurrence = entry.getRecurrence();
+                    int reminderDay = entry.getDueEpochDay();
+                    if (recurrence == null){
+                        insertBill.bindLong(5, Recurrence.NONE);
+                        insertBill.bindLong(6, 1);
+                        insertBill.bindNull(7);
+                        insertBill.bindLong(8, Recurrence.NO_COUNT);
+                        insertBill.bindLong(9, entry.getDueEpochDay());
+                        insertBill.bindNull(10);
+                    }
+                    else{
+                        recurrence = recurrence.startingOn(entry.getDueEpochDay());
+                        insertBill.bindLong(5, recurrence.getUnit());
+                        insertBill.bindLong(6, recurrence.getEvery());
+                        if (recurrence.getUntilDay() == Recurrence.NO_OCCURRENCE){
+                            insertBill.bindNull(7);
+                        }
+                        else{
+                            insertBill.bindLong(7, recurrence.getUntilDay());
+                        }
+                        insertBill.bindLong(8, recurrence.getCount());
+                        insertBill.bindLong(9, recurrence.lastDay());
+                        if (recurrence.getPaidThroughDay() == Recurrence.NOT_PAID){
+                            insertBill.bindNull(10);
+                        }
+                        else{
+                            insertBill.bindLong(10, recurrence.getPaidThroughDay());
+                        }
+                        reminderDay = recurrence.nextOnOrAfter(today + entry.getLeadDays());
+                    }
+                    long id = insertBill.executeInsert();
+                    if (entry.getLeadDays() != BillFormat.NO_NOTIFICATION &&
+                            reminderDay != Recurrence.NO_OCCURRENCE){
+                        insertReminder.bindLong(1, id);
+                        insertReminder.bindLong(2, reminderDay - entry.getLeadDays());
+                        insertReminder.executeInsert();
+                    }
+                    result.insertedCount++;
+                }
+                catch (SQLException e){
+                    result.addFailure(row, entry, e.getMessage());
+                }
+                row++;
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+            insertBill.close();
+            insertReminder.close();
+        }
+        if (result.insertedCount > 0){
+            billCache.invalidate();
+            notifyChange(BillChange.RESET);
+        }
+        return result;
+    }
+
+    /**
+     * Imports every bill of a source, such as a CSV or JSON file. The bills are read one at
+     * a time and inserted through insertBills in chunks of IMPORT_CHUNK_SIZE, so only one
+     * chunk is held in memory however large the source is. A bill that cannot be read or
+     * inserted is recorded in the result with its position in the source, and the import
+     * carries on with the next one
+     * @param source The bills to import
+     * @return BatchInsertResult The number of bills imported and the bills that failed
+     * @throws IOException if the source cannot be read. The chunks already inserted are kept
+     */
+    public BatchInsertResult importBills(BillSource source) throws IOException {
+        BatchInsertResult result = new BatchInsertResult();
+        List<BillEntry> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        int[] chunkRows = new int[IMPORT_CHUNK_SIZE];     // The position in the source of each bill of the chunk
+        int row = 0;
+        while (true){
+            BillEntry entry;
+            try {
+                entry = source.next();
+            }
+            catch (NumberFormatException e){
+                result.addFailure(row++, null, e.getMessage());
+                continue;
+            }
+            if (entry != null){
+                chunkRows[chunk.size()] = row++;
+                chunk.add(entry);
+            }
+            if (chunk.size() == IMPORT_CHUNK_SIZE || (entry == null && !chunk.isEmpty())){
+                BatchInsertResult chunkResult = insertBills(chunk);
+                result.insertedCount += chunkResult.insertedCount;
+                for (BatchInsertResult.Failure failure : chunkResult.failures){
+                    result.addFailure(chunkRows[failure.row], failure.entry, failure.reason);
+                }
+                chunk.clear();
+            }
+            if (entry == null){
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Exports every unpaid bill, ordered by due date, to a sink such as a CSV or JSON file.
+     * Paid bills are left out, as the CSV and JSON formats have no paid state and importing
+     * them would bring them back as unpaid. The bills are written as the cursor moves over
+     * them, without collecting them in a list
+     * @param sink Receives the bills
+     * @return int The number of bills exported
+     * @throws IOException if the sink cannot be written
+     */
+    public int exportBills(BillSink sink) throws IOException {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select * from bills where paid_day is null order by date, id", null);
+        int exported = 0;
+        try {
+            BillRowMapper mapper = new BillRowMapper(res);
+            while (res.moveToNext()){
+                sink.write(mapper.map(res));
+                exported++;
+            }
+        }
+        finally {
+            res.close();
+        }
+        return exported;
+    }
+
+    /**
+     * Returns a cursor containing the single queried record with a given id. The caller
+     * owns the cursor and must close it
      * @param id The id to search the database for
+     * @return Cursor The cursor over the record
      */
     public Cursor getData(int id){
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor res = db.rawQuery("select * from bills where id="+id+"", null);
+        Cursor res = db.rawQuery("select * from bills where id = ?",
+                new String[] {Integer.toString(id)});
         return res;
     }
 
+    /**
+     * Returns the bill with the given id in BillEntry type
+     * @param id The id to search the database for
+     * @return BillEntry The bill, or null if there is no bill with that id
+     */
+    public BillEntry getBill(int id){
+        ArrayList<BillEntry> entries = BillRowMapper.readAll(getData(id));
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
     /**
      * Returns the number of rows in the database
      * @return int The number of rows in the database
      */
     public int numberOfRows(){
-        SQLiteDatabase db = this.getReadableDatabase();
-        int numRows = (int) DatabaseUtils.queryNumEntries(db, BILL_TABLE_NAME);
-        return numRows;
+        SQLiteStatement count = statement("select count(*) from bills");
+        synchronized (count){
+            return (int) count.simpleQueryForLong();
+        }
     }
 
     /**
-     * Updates the columns of the bill entry based on the given id value
+     * Updates the columns of the bill entry based on the given id value. A recurring bill
+     * keeps its repeat rule, which then starts from the updated due date
      * @param id The id of the record to update
      * @param name The updated name of the bill
-     * @param amount The updated amount of the bill
-     * @param date The updated due date of the bill
-     * @param notification The updated notification choice of the bill
+     * @param amountCents The updated amount of the bill in cents
+     * @param dueEpochDay The updated due date of the bill as an epoch day
+     * @param leadDays The updated number of days before due to notify the user
      * @return boolean True if the update was successful
      */
-    public boolean updateEntry(Integer id, String name, String amount, String date, String notification){
+    public boolean updateEntry(Integer id, String name, long amountCents, int dueEpochDay,
+                               int leadDays){
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues contentValues = new ContentValues();
         contentValues.put("name", name);
-        contentValues.put("amount", amount);
-        contentValues.put("date", date);
-        contentValues.put("notification", notification);
-        db.update("bills", contentValues, "id = ? ", new String[] { Integer.toString(id)});
+        contentValues.put("amount", amountCents);
+        contentValues.put("date", dueEpochDay);
+        contentValues.put("notification", leadDays);
+
+        BillEntry before;
+        Recurrence recurrence = null;
+        db.beginTransaction();
+        try {
+            before = getBill(id);
+            if (before != null && before.getRecurrence() != null){
+                recurrence = before.getRecurrence().startingOn(dueEpochDay);
+            }
+            putRecurrence(contentValues, dueEpochDay, recurrence);
+            if (db.update("bills", contentValues, "id = ? ", new String[] { Integer.toString(id)}) > 0){
+                if (before.isPaid()){
+                    deleteReminder(id);
+                }
+                else if (recurrence == null){
+                    writeReminder(id, dueEpochDay, leadDays);
+                }
+                else{
+                    writeRecurringReminder(id, recurrence, leadDays, DueDates.today());
+                }
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+        }
+        if (recurrence != null){
+            billCache.invalidate();
+            notifyChange(BillChange.RESET);
+        }
+        else if (before != null){
+            BillEntry after = new BillEntry(id, name, amountCents, dueEpochDay, leadDays, null,
+                    before.getPaidEpochDay());
+            billCache.remove(before);
+            if (!after.isPaid()){
+                billCache.put(after);
+            }
+            notifyChange(new BillChange(before, after));
+        }
         return true;
     }
 
@@ -126,9 +1029,115 @@ public class DatabaseHelper extends SQLiteOpenHelper{
      */
     public Integer deleteEntry(int id){
         SQLiteDatabase db = this.getWritableDatabase();
-        return db.delete("bills",
-                "id = ? ",
-                new String[] {Integer.toString(id)});
+        BillEntry before;
+        int deletedRows;
+        db.beginTransaction();
+        try {
+            before = getBill(id);
+            deletedRows = db.delete("bills",
+                    "id = ? ",
+                    new String[] {Integer.toString(id)});
+            deleteReminder(id);
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+        }
+        if (before != null && deletedRows > 0 && before.getRecurrence() != null){
+            billCache.invalidate();
+            notifyChange(BillChange.RESET);
+        }
+        else if (before != null && deletedRows > 0){
+            billCache.remove(before);
+            notifyChange(new BillChange(before, null));
+        }
+        return deletedRows;
+    }
+
+    /**
+     * Marks a bill paid on the given day, which takes it out of the lists, the summary and
+     * the reminders. For a recurring bill only the given occurrence and those before it are
+     * paid, and the bill itself is only marked paid once it has no occurrences left
+     * @param entry The bill, or the occurrence of a recurring bill, that was paid
+     * @param paidEpochDay The day it was paid, as an epoch day
+     * @return boolean True if the bill was found
+     */
+    public boolean markPaid(BillEntry entry, int paidEpochDay){
+        SQLiteDatabase db = this.getWritableDatabase();
+        BillEntry before;
+        db.beginTransaction();
+        try {
+            before = getBill(entry.getId());
+            if (before == null || before.isPaid()){
+                return false;
+            }
+            ContentValues contentValues = new ContentValues();
+            Recurrence recurrence = before.getRecurrence();
+            if (recurrence != null){
+                recurrence = recurrence.paidThrough(entry.getDueEpochDay());
+                contentValues.put(BILL_COLUMN_PAID_THROUGH, recurrence.getPaidThroughDay());
+            }
+            boolean seriesPaid = recurrence != null &&
+                    recurrence.nextOnOrAfter(FIRST_DAY) == Recurrence.NO_OCCURRENCE;
+            if (recurrence == null || seriesPaid){
+                contentValues.put(BILL_COLUMN_PAID_DAY, paidEpochDay);
+                deleteReminder(before.getId());
+            }
+            else{
+                writeRecurringReminder(before.getId(), recurrence, before.getLeadDays(),
+                        DueDates.today());
+            }
+            db.update("bills", contentValues, "id = ? ",
+                    new String[] {Integer.toString(before.getId())});
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+        }
+        if (before.getRecurrence() != null){
+            billCache.invalidate();
+            notifyChange(BillChange.RESET);
+        }
+        else{
+            billCache.remove(before);
+            notifyChange(new BillChange(before, null));
+        }
+        return true;
+    }
+
+    /**
+     * Moves the bills paid more than the given number of days ago out of the bills table
+     * and into the bills_history table. The bills are moved ARCHIVE_BATCH_SIZE at a time in
+     * their own transactions, found through the bills_paid_day index, so a large archive
+     * never holds the writer for long or grows the write-ahead log by more than one batch.
+     * Every archived bill gets a new history row, even if an earlier bill with the same id
+     * was archived before
+     * @param olderThanDays The number of days a bill must have been paid for, such as
+     *                      ARCHIVE_AFTER_DAYS
+     * @return int The number of bills archived
+     */
+    public int archivePaidBills(int olderThanDays){
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] arguments = arguments(DueDates.today() - olderThanDays, ARCHIVE_BATCH_SIZE);
+        String batch = "select id from bills where paid_day is not null and paid_day <= ? order by paid_day, id limit ?";
+        int archived = 0;
+        while (true){
+            int moved;
+            db.beginTransaction();
+            try {
+                db.execSQL("insert into bills_history (" + BILL_COLUMN_NAMES + ") select " +
+                        BILL_COLUMN_NAMES + " from bills where id in (" + batch + ")", arguments);
+                moved = db.delete(BILL_TABLE_NAME, "id in (" + batch + ")", arguments);
+                db.setTransactionSuccessful();
+            }
+            finally {
+                db.endTransaction();
+            }
+            archived += moved;
+            if (moved < ARCHIVE_BATCH_SIZE){
+                return archived;
+            }
+        }
     }
 
     /**
@@ -139,113 +1148,535 @@ public class DatabaseHelper extends SQLiteOpenHelper{
         ArrayList<String> arrayList = new ArrayList<>();
 
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor res = db.rawQuery("select * from bills", null);
-        res.moveToFirst();
-
-        while(res.isAfterLast() == false){
-            arrayList.add(res.getString(res.getColumnIndex(BILL_COLUMN_NAME)));
-            res.moveToNext();
+        Cursor res = db.rawQuery("select name from bills", null);
+        try {
+            int nameColumn = res.getColumnIndexOrThrow(BILL_COLUMN_NAME);
+            while (res.moveToNext()){
+                arrayList.add(res.getString(nameColumn));
+            }
+        }
+        finally {
+            res.close();
         }
         return arrayList;
     }
 
     /**
-     * Deletes all bills from the database
+     * Deletes all bills from the database, including the archived ones
      */
     public void deleteAll(){
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(BILL_TABLE_NAME, null, null);
+        db.beginTransaction();
+        try {
+            db.delete(BILL_TABLE_NAME, null, null);
+            db.delete(REMINDER_TABLE_NAME, null, null);
+            db.delete(HISTORY_TABLE_NAME, null, null);
+            db.setTransactionSuccessful();
+        }
+        finally {
+            endWrite(db);
+        }
+        billCache.invalidate();
+        notifyChange(BillChange.RESET);
     }
 
     /**
-     * Returns todays date in string format
-     * @return string Today's date in string format
+     * Registers a listener that is told about every insert, update and delete made to the
+     * bills table of the active account, and about the active account being switched.
+     * Changes are delivered on the main thread
+     * @param listener The listener to register
      */
-    private String getTodaysDate(){
-        Calendar today = Calendar.getInstance();
-        Integer year = today.get(Calendar.YEAR);
-        Integer month = today.get(Calendar.MONTH) + 1;
-        Integer day = today.get(Calendar.DAY_OF_MONTH);
+    public static void addChangeListener(ChangeListener listener){
+        CHANGE_LISTENERS.add(listener);
+    }
 
-        String yearString = String.valueOf(year);
-        String monthString;
-        String dayString;
-        if (month < 10){
-            monthString = "0" + String.valueOf(month);
+    /**
+     * Unregisters a listener added with addChangeListener
+     * @param listener The listener to unregister
+     */
+    public static void removeChangeListener(ChangeListener listener){
+        CHANGE_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers a listener that is told about every insert, update and delete made to the
+     * bills table of any account, whether or not it is the active one. Changes are delivered
+     * on the main thread
+     * @param listener The listener to register
+     */
+    public static void addAccountChangeListener(AccountChangeListener listener){
+        ACCOUNT_CHANGE_LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregisters a listener added with addAccountChangeListener
+     * @param listener The listener to unregister
+     */
+    public static void removeAccountChangeListener(AccountChangeListener listener){
+        ACCOUNT_CHANGE_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Hands a committed change to every registered listener on the main thread, and queues
+     * the snapshot of the unpaid bills to be written again
+     * @param change The change made to the bills table
+     */
+    private void notifyChange(BillChange change){
+        queueSnapshot();
+        notifyListeners(change);
+    }
+
+    /**
+     * Hands a change to every registered listener on the main thread. The listeners of the
+     * active account are only told if this is still the active account when the change is
+     * delivered, as the account may be switched between the commit and the delivery, and the
+     * screens of the account switched to must not be handed a change to another account
+     * @param change The change made to the bills table
+     */
+    private void notifyListeners(final BillChange change){
+        if (CHANGE_LISTENERS.isEmpty() && ACCOUNT_CHANGE_LISTENERS.isEmpty()){
+            return;
         }
-        else{
-            monthString = String.valueOf(month);
+        MAIN_THREAD.post(new Runnable() {
+            @Override
+            public void run() {
+                for (AccountChangeListener listener : ACCOUNT_CHANGE_LISTENERS){
+                    listener.onBillChanged(account, change);
+                }
+                if (DatabaseHelper.this != instance){
+                    return;
+                }
+                for (ChangeListener listener : CHANGE_LISTENERS){
+                    listener.onBillChanged(change);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the unpaid records in the database whose due date falls between the two given
+     * epoch days, inclusive, ordered by due date. Recurring bills are returned once for each
+     * of their unpaid occurrences in the range, up to RECURRENCE_HORIZON_DAYS past today. The
+     * bills_unpaid_date index turns the bills that do not repeat into an index range scan, so
+     * the cost depends on the size of the range rather than the table. Ranges inside the
+     * cached window are answered from memory
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @param limit The maximum number of records to return, or NO_LIMIT
+     * @param offset The number of matching records to skip
+     * @return ArrayList<BillEntry> The matching records in BillEntry type
+     */
+    public ArrayList<BillEntry> queryBills(int fromDay, int toDay, int limit, int offset){
+        ArrayList<BillEntry> cached = billCache.getRange(fromDay, toDay, limit, offset);
+        if (cached == null && offset == 0 &&
+                loadIntoCache(fromDay, toDay, countBillsInDatabase(fromDay, toDay))){
+            cached = billCache.peekRange(fromDay, toDay, limit, offset);
+        }
+        if (cached != null){
+            return cached;
         }
+        return queryDatabase(fromDay, toDay, limit, offset);
+    }
 
-        if (day < 10){
-            dayString = "0" + String.valueOf(day);
+    /**
+     * Returns the next records in a due date range that come after the given record in
+     * (date, id) order. Paging with the last record seen starts the index range scan at
+     * that record, so later pages cost the same as the first instead of skipping an offset
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @param afterDay The due date of the last record already seen
+     * @param afterId The id of the last record already seen
+     * @param limit The maximum number of records to return
+     * @return ArrayList<BillEntry> The matching records in BillEntry type
+     */
+    public ArrayList<BillEntry> queryBillsAfter(int fromDay, int toDay, int afterDay,
+                                                int afterId, int limit){
+        ArrayList<BillEntry> cached =
+                billCache.getRangeAfter(fromDay, toDay, afterDay, afterId, limit);
+        if (cached != null){
+            return cached;
         }
-        else{
-            dayString = String.valueOf(day);
+        int startDay = Math.max(fromDay, afterDay);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select * from bills where repeat_unit = 0 and date between ? and ? and (date > ? or id > ?) and paid_day is null order by date, id limit ?",
+                arguments(startDay, toDay, afterDay, afterId, limit));
+        return merge(BillRowMapper.readAll(res),
+                queryOccurrences(fromDay, toDay, afterDay, afterId, limit), 0, limit);
+    }
+
+    /**
+     * Returns the records due between the two days like queryBills, read from the database
+     * rather than the cache
+     */
+    private ArrayList<BillEntry> queryDatabase(int fromDay, int toDay, int limit, int offset){
+        int end = limit < 0 ? NO_LIMIT : limit + offset;
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select * from bills where repeat_unit = 0 and date between ? and ? and paid_day is null order by date, id limit ?",
+                arguments(fromDay, toDay, end));
+        return merge(BillRowMapper.readAll(res),
+                queryOccurrences(fromDay, toDay, FIRST_DAY, 0, end), offset, limit);
+    }
+
+    /**
+     * Returns the occurrences of the recurring bills that fall between the two days and come
+     * after the given bill in (date, id) order, in that order. Only the recurring bills that
+     * can have an occurrence in the range are read, and none is expanded past
+     * RECURRENCE_HORIZON_DAYS from today, so a bill with no end date is never expanded
+     * further than the range being looked at
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @param afterDay The due date of the last bill already seen, or FIRST_DAY
+     * @param afterId The id of the last bill already seen
+     * @param limit The most occurrences to return, or NO_LIMIT
+     * @return ArrayList<BillEntry> The occurrences in BillEntry type
+     */
+    private ArrayList<BillEntry> queryOccurrences(int fromDay, int toDay, int afterDay,
+                                                  int afterId, int limit){
+        ArrayList<BillEntry> occurrences = new ArrayList<>();
+        int lastDay = Math.min(toDay, DueDates.today() + RECURRENCE_HORIZON_DAYS);
+        int firstDay = Math.max(fromDay, afterDay);
+        if (firstDay > lastDay){
+            return occurrences;
+        }
+        for (BillEntry template : queryRecurringBills(firstDay, lastDay)){
+            template.getRecurrence().expand(template, fromDay, lastDay, afterDay, afterId,
+                    limit, occurrences);
         }
+        Collections.sort(occurrences, BillEntry.DUE_ORDER);
+        if (limit >= 0 && occurrences.size() > limit){
+            occurrences.subList(limit, occurrences.size()).clear();
+        }
+        return occurrences;
+    }
 
-        return yearString + "-" + monthString + "-" + dayString;
+    /**
+     * Returns the recurring bills that can have an occurrence between the two days, with
+     * their first due date
+     */
+    private ArrayList<BillEntry> queryRecurringBills(int fromDay, int toDay){
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select * from bills where repeat_unit > 0 and date <= ? and last_date >= ? and paid_day is null",
+                arguments(toDay, fromDay));
+        return BillRowMapper.readAll(res);
     }
 
     /**
-     * Returns the date one week from now in string format
-     * @return string Date one week from now
+     * Merges two lists of bills sorted in (date, id) order, skipping the given number and
+     * returning at most limit of them
+     * @return ArrayList<BillEntry> The merged bills
      */
-    private String getOneWeeksDateFromNow(){
-        Calendar today = Calendar.getInstance();
-        today.add(Calendar.DAY_OF_MONTH, 7);
-        Integer year = today.get(Calendar.YEAR);
-        Integer month = today.get(Calendar.MONTH) + 1;
-        Integer day = today.get(Calendar.DAY_OF_MONTH);
+    private static ArrayList<BillEntry> merge(List<BillEntry> first, List<BillEntry> second,
+                                              int offset, int limit){
+        if (second.isEmpty() && offset == 0){
+            return first instanceof ArrayList ? (ArrayList<BillEntry>) first : new ArrayList<>(first);
+        }
+        ArrayList<BillEntry> merged = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        int skipped = 0;
+        while ((i < first.size() || j < second.size()) && (limit < 0 || merged.size() < limit)){
+            BillEntry next;
+            if (j == second.size() || (i < first.size() && BillEntry.DUE_ORDER.compare(first.get(i), second.get(j)) <= 0)){
+                next = first.get(i++);
+            }
+            else{
+                next = second.get(j++);
+            }
+            if (skipped < offset){
+                skipped++;
+            }
+            else{
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
 
-        String yearString = String.valueOf(year);
-        String monthString;
-        String dayString;
-        if (month < 10){
-            monthString = "0" + String.valueOf(month);
+    /**
+     * Returns the number of unpaid records whose due date falls between the two given epoch days,
+     * counted from the cached window, or else from the bills_unpaid_date index and
+     * the repeat rules of the recurring bills. A range that is counted from the database is
+     * then loaded into the cache if it fits, so the pages read after the count are answered
+     * from memory
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @return int The number of matching records
+     */
+    public int countBills(int fromDay, int toDay){
+        int cached = billCache.count(fromDay, toDay);
+        if (cached >= 0){
+            return cached;
         }
-        else{
-            monthString = String.valueOf(month);
+        int count = countBillsInDatabase(fromDay, toDay);
+        loadIntoCache(fromDay, toDay, count);
+        return count;
+    }
+
+    /**
+     * Loads every bill due between the two days into the cache, replacing the window it
+     * held, if there are few enough to fit under its cap
+     * @param fromDay The first due date to load, as an epoch day
+     * @param toDay The last due date to load, as an epoch day
+     * @param count The number of bills due in the range
+     * @return boolean True if the cache now holds the range
+     */
+    private boolean loadIntoCache(int fromDay, int toDay, int count){
+        if (count > billCache.getMaxBills()){
+            return false;
         }
+        long version = billCache.version();
+        return billCache.install(fromDay, toDay, queryDatabase(fromDay, toDay, NO_LIMIT, 0), version);
+    }
 
-        if (day < 10){
-            dayString = "0" + String.valueOf(day);
+    /**
+     * Counts the bills due between the two days in the database, bypassing the cache. Every
+     * occurrence of a recurring bill up to RECURRENCE_HORIZON_DAYS past today is counted
+     */
+    private int countBillsInDatabase(int fromDay, int toDay){
+        int count;
+        SQLiteStatement countStatement = statement("select count(*) from bills where repeat_unit = 0 and date between ? and ? and paid_day is null");
+        synchronized (countStatement){
+            countStatement.bindLong(1, fromDay);
+            countStatement.bindLong(2, toDay);
+            count = (int) countStatement.simpleQueryForLong();
         }
-        else{
-            dayString = String.valueOf(day);
+        int lastDay = Math.min(toDay, DueDates.today() + RECURRENCE_HORIZON_DAYS);
+        if (fromDay <= lastDay){
+            for (BillEntry template : queryRecurringBills(fromDay, lastDay)){
+                count += template.getRecurrence().countBetween(fromDay, lastDay);
+            }
         }
-        return String.format("%s-%s-%s", yearString , monthString, dayString);
+        return count;
     }
 
     /**
-     * Returns the date in string format one month from now
-     * @return string The date in string format one month from now
+     * Returns the unpaid bills whose title has words starting with every word of the search
+     * text, ordered by due date. Paid bills are left out, as they are from every list. The
+     * words are looked up in the bills_search full-text index, so the cost depends on the
+     * number of matching bills rather than the size of the table. A recurring bill is
+     * returned once, with its first due date
+     * @param text The search text as typed by the user
+     * @param limit The maximum number of records to return, or NO_LIMIT
+     * @param offset The number of matching records to skip
+     * @return ArrayList<BillEntry> The matching records in BillEntry type
      */
-    private String getOneMonthDateFromNow(){
-        Calendar today = Calendar.getInstance();
-        today.add(Calendar.MONTH, 1);
-        Integer year = today.get(Calendar.YEAR);
-        Integer month = today.get(Calendar.MONTH) + 1;
-        Integer day = today.get(Calendar.DAY_OF_MONTH);
+    public ArrayList<BillEntry> searchBills(String text, int limit, int offset){
+        String match = BillFormat.searchMatch(text);
+        if (match == null){
+            return new ArrayList<>();
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select bills.* from bills_search join bills on bills.id = bills_search.docid where bills_search match ? and bills.paid_day is null order by bills.date, bills.id limit ? offset ?",
+                new String[] {match, Integer.toString(limit), Integer.toString(offset)});
+        return BillRowMapper.readAll(res);
+    }
 
-        String yearString = String.valueOf(year);
-        String monthString;
-        String dayString;
-        if (month < 10){
-            monthString = "0" + String.valueOf(month);
+    /**
+     * Returns the next bills matching the search text that come after the given bill in
+     * (date, id) order, like queryBillsAfter does for a date range
+     * @param text The search text as typed by the user
+     * @param afterDay The due date of the last record already seen
+     * @param afterId The id of the last record already seen
+     * @param limit The maximum number of records to return
+     * @return ArrayList<BillEntry> The matching records in BillEntry type
+     */
+    public ArrayList<BillEntry> searchBillsAfter(String text, int afterDay, int afterId, int limit){
+        String match = BillFormat.searchMatch(text);
+        if (match == null){
+            return new ArrayList<>();
         }
-        else{
-            monthString = String.valueOf(month);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select bills.* from bills_search join bills on bills.id = bills_search.docid where bills_search match ? and bills.paid_day is null and (bills.date > ? or (bills.date = ? and bills.id > ?)) order by bills.date, bills.id limit ?",
+                new String[] {match, Integer.toString(afterDay), Integer.toString(afterDay),
+                        Integer.toString(afterId), Integer.toString(limit)});
+        return BillRowMapper.readAll(res);
+    }
+
+    /**
+     * Returns the number of unpaid bills matching the search text, found in the full-text
+     * index and joined to the bills so paid bills are left out, as they are from the pages
+     * @param text The search text as typed by the user
+     * @return int The number of matching records
+     */
+    public int countSearch(String text){
+        String match = BillFormat.searchMatch(text);
+        if (match == null){
+            return 0;
+        }
+        SQLiteStatement count = statement("select count(*) from bills_search join bills on bills.id = bills_search.docid where bills_search match ? and bills.paid_day is null");
+        synchronized (count){
+            count.bindString(1, match);
+            return (int) count.simpleQueryForLong();
         }
+    }
+
+    /**
+     * Returns the number of unpaid bills and the total amount due that are overdue, due within
+     * a week, due within a month, and overall. Every bill that does not repeat is placed in
+     * exactly one due date bucket by a single grouped pass over the
+     * bills_unpaid_date index, without reading the table itself. The occurrences
+     * of recurring bills up to RECURRENCE_HORIZON_DAYS past today are added to the same
+     * buckets, and the week, month and overall totals are summed from the buckets
+     * @return BillSummary The counts and totals of each range
+     */
+    public BillSummary getSummary(){
+        int today = DueDates.today();
+        int oneMonthFromToday = DueDates.oneMonthFromToday();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select case when date < ? then 0 when date <= ? then 1 when date <= ? then 2 else 3 end as bucket, count(*), total(amount) from bills where repeat_unit = 0 and paid_day is null group by bucket",
+                arguments(today, today + 7, oneMonthFromToday));
 
-        if (day < 10){
-            dayString = "0" + String.valueOf(day);
+        int[] counts = new int[4];
+        long[] cents = new long[4];
+        try {
+            while (res.moveToNext()){
+                int bucket = res.getInt(0);
+                counts[bucket] = res.getInt(1);
+                cents[bucket] = res.getLong(2);
+            }
         }
-        else{
-            dayString = String.valueOf(day);
+        finally {
+            res.close();
         }
+        for (BillEntry occurrence : queryOccurrences(FIRST_DAY, LAST_DAY, FIRST_DAY, 0, NO_LIMIT)){
+            int day = occurrence.getDueEpochDay();
+            int bucket = day < today ? 0 : (day <= today + 7 ? 1 : (day <= oneMonthFromToday ? 2 : 3));
+            counts[bucket]++;
+            cents[bucket] += occurrence.getAmountCents();
+        }
+
+        BillSummary summary = new BillSummary();
+        summary.overdueCount = counts[0];
+        summary.overdueCents = cents[0];
+        summary.thisWeekCount = counts[1];
+        summary.thisWeekCents = cents[1];
+        summary.thisMonthCount = counts[1] + counts[2];
+        summary.thisMonthCents = cents[1] + cents[2];
+        summary.allCount = counts[0] + counts[1] + counts[2] + counts[3];
+        summary.allCents = cents[0] + cents[1] + cents[2] + cents[3];
+        return summary;
+    }
 
-        return String.format("%s-%s-%s", yearString , monthString, dayString);
+    /**
+     * Returns the bills whose reminder fires between the two given days, inclusive. The days
+     * are looked up in the reminders_fire_day index and only the matching bills are read, so
+     * the cost depends on the number of reminders in the range rather than on the number of bills.
+     * A recurring bill is returned as the occurrence its reminder is for
+     * @param fromDay The first day the reminders fire on, as an epoch day
+     * @param toDay The last day the reminders fire on, as an epoch day
+     * @return ArrayList<BillEntry> The bills to remind the user of in BillEntry type
+     */
+    public ArrayList<BillEntry> getBillsToRemindBetween(int fromDay, int toDay){
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select bills.*, reminders.fire_day from reminders join bills on bills.id = reminders.bill_id where reminders.fire_day between ? and ? order by reminders.fire_day + bills.notification, bills.id",
+                arguments(fromDay, toDay));
+        return readReminders(res, FIRST_DAY);
+    }
+
+    /**
+     * Returns the reminders that fire on or before today and have not been delivered, for
+     * the bills not past due, and marks every reminder up to today as delivered. The
+     * reminders of recurring bills are then moved on to their next occurrence. It is all
+     * done in one transaction, so a reminder saved meanwhile is either returned or left to
+     * deliver, and never marked as delivered without being returned
+     * @param today Today as an epoch day
+     * @return ArrayList<BillEntry> The bills to remind the user of, by due date
+     */
+    public ArrayList<BillEntry> takeDueReminders(int today){
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Cursor res = db.rawQuery("select bills.*, reminders.fire_day from reminders join bills on bills.id = reminders.bill_id where reminders.delivered = 0 and reminders.fire_day <= ? order by reminders.fire_day + bills.notification, bills.id",
+                    arguments(today));
+            ArrayList<BillEntry> due = readReminders(res, today);
+            db.execSQL("update reminders set delivered = 1 where delivered = 0 and fire_day <= ?",
+                    new Object[]{today});
+            advanceReminders(today);
+            db.setTransactionSuccessful();
+            return due;
+        }
+        finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Maps the bills of a reminders query, each recurring bill as the occurrence its
+     * reminder is for. The cursor is closed once it has been read
+     * @param res A cursor selecting every column of the bills and the fire_day of the reminder
+     * @param fromDueDay The earliest due date to return, as an epoch day
+     * @return ArrayList<BillEntry> The bills due on or after fromDueDay
+     */
+    private ArrayList<BillEntry> readReminders(Cursor res, int fromDueDay){
+        ArrayList<BillEntry> entries = new ArrayList<>();
+        try {
+            BillRowMapper mapper = new BillRowMapper(res);
+            int fireDayColumn = res.getColumnIndexOrThrow("fire_day");
+            while (res.moveToNext()){
+                BillEntry entry = mapper.map(res);
+                if (entry.getRecurrence() != null){
+                    entry = entry.occurrenceOn(res.getInt(fireDayColumn) + entry.getLeadDays());
+                }
+                if (entry.getDueEpochDay() >= fromDueDay){
+                    entries.add(entry);
+                }
+            }
+        }
+        finally {
+            res.close();
+        }
+        return entries;
+    }
+
+    /**
+     * Moves the reminders of recurring bills that fired on or before the given day on to
+     * the next occurrence of each bill, so a recurring bill only ever has one reminder row.
+     * This is called once the reminders up to that day have been read for delivery
+     * @param throughDay The last day whose reminders have been delivered, as an epoch day
+     */
+    private void advanceReminders(int throughDay){
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Cursor res = db.rawQuery("select bills.* from reminders join bills on bills.id = reminders.bill_id where reminders.fire_day <= ? and bills.repeat_unit > 0",
+                    arguments(throughDay));
+            for (BillEntry entry : BillRowMapper.readAll(res)){
+                writeRecurringReminder(entry.getId(), entry.getRecurrence(), entry.getLeadDays(),
+                        throughDay + 1);
+            }
+            db.setTransactionSuccessful();
+        }
+        finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Returns the first day a reminder that has not been delivered fires on, read from the
+     * start of the reminders_pending index. This is today or earlier if a reminder was saved
+     * after the reminders of its day were delivered
+     * @return int The epoch day of the next reminder, or LAST_DAY if there is none
+     */
+    public int getNextReminderDay(){
+        SQLiteStatement next = statement("select ifnull(min(fire_day), ?) from reminders where delivered = 0");
+        synchronized (next){
+            next.bindLong(1, LAST_DAY);
+            return (int) next.simpleQueryForLong();
+        }
+    }
+
+    /**
+     * Returns the arguments of a query as the strings rawQuery binds. The columns they are
+     * compared with have integer affinity, so SQLite compares them as numbers
+     * @param values The arguments in order
+     * @return String[] The arguments as strings
+     */
+    private static String[] arguments(int... values){
+        String[] arguments = new String[values.length];
+        for (int i = 0; i < values.length; i++){
+            arguments[i] = Integer.toString(values[i]);
+        }
+        return arguments;
     }
 
     /**
@@ -255,23 +1686,8 @@ public class DatabaseHelper extends SQLiteOpenHelper{
      *                              now in BillEntry type
      */
     public ArrayList<BillEntry> getThisWeekBillsInFormat(){
-        ArrayList<BillEntry> allEntries = new ArrayList<>();
-
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor res = db.rawQuery("select * from bills where date between " + "\"" + getTodaysDate() + "\"" + " and " + "\"" + getOneWeeksDateFromNow() + "\"" + " order by date", null);
-        res.moveToFirst();
-
-        while (res.isAfterLast() == false){
-            String title = res.getString(res.getColumnIndex(BILL_COLUMN_NAME));
-            String amount = res.getString(res.getColumnIndex(BILL_COLUMN_AMOUNT));
-            String date = res.getString(res.getColumnIndex(BILL_COLUMN_DUEDATE));
-            String notification = res.getString(res.getColumnIndex(BILL_NOTIFICATION_CHOICE));
-
-            BillEntry created = new BillEntry(title, amount, date, notification);
-            allEntries.add(created);
-            res.moveToNext();
-        }
-        return allEntries;
+        int today = DueDates.today();
+        return queryBills(today, today + 7, NO_LIMIT, 0);
     }
 
     /**
@@ -281,47 +1697,152 @@ public class DatabaseHelper extends SQLiteOpenHelper{
      *                              now and one month from now in BillEntry type
      */
     public ArrayList<BillEntry> getThisMonthBillsInFormat(){
-        ArrayList<BillEntry> allEntries = new ArrayList<>();
+        return queryBills(DueDates.today(), DueDates.oneMonthFromToday(), NO_LIMIT, 0);
+    }
 
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor res = db.rawQuery("select * from bills where date between " + "\"" + getTodaysDate() + "\"" + " and " + "\"" + getOneMonthDateFromNow() + "\"" + " order by date", null);
-        res.moveToFirst();
+    /**
+     * Returns all records from the database in BillEntry type
+     * @return ArrayList<BillEntry> All records in the database in BillEntry type
+     */
+    public ArrayList<BillEntry> getAllBillsInFormat(){
+        return queryBills(FIRST_DAY, LAST_DAY, NO_LIMIT, 0);
+    }
 
-        while (res.isAfterLast() == false){
-            String title = res.getString(res.getColumnIndex(BILL_COLUMN_NAME));
-            String amount = res.getString(res.getColumnIndex(BILL_COLUMN_AMOUNT));
-            String date = res.getString(res.getColumnIndex(BILL_COLUMN_DUEDATE));
-            String notification = res.getString(res.getColumnIndex(BILL_NOTIFICATION_CHOICE));
+    /**
+     * Returns the bills of every view of the bill list, all, this month and this week, read
+     * in one date ordered pass over the bills rather than one query per view. The bills are
+     * only loaded if there are few enough to fit in the cache, as they are all held in memory.
+     * They are counted with a plain count of the unpaid rows, read from the bills_unpaid_date
+     * index, rather than through the cache, which would hold every bill as a BillEntry too
+     * @return BillWindows The views over the bills, or null if there are too many bills
+     */
+    public BillWindows loadBillWindows(){
+        int maxBills = billCache.getMaxBills();
+        int rows;
+        SQLiteStatement count = statement("select count(*) from bills where paid_day is null");
+        synchronized (count){
+            rows = (int) count.simpleQueryForLong();
+        }
+        if (rows > maxBills){
+            return null;
+        }
+        BillColumns columns = loadBillColumns(rows);
+        // Recurring bills are counted once but loaded as each of their occurrences
+        if (columns.size() > maxBills){
+            return null;
+        }
+        return BillWindows.of(columns, DueDates.today(), DueDates.oneMonthFromToday());
+    }
 
-            BillEntry created = new BillEntry(title, amount, date, notification);
-            allEntries.add(created);
-            res.moveToNext();
+    /**
+     * Returns every unpaid bill in BillColumns, in (date, id) order. The rows of the bills
+     * that do not repeat are copied from the cursor straight into the columns, without a
+     * BillEntry for each, and merged with the occurrences of the recurring bills
+     * @param expectedCount The number of bills expected, so the columns are sized once
+     * @return BillColumns Every unpaid bill
+     */
+    public BillColumns loadBillColumns(int expectedCount){
+        List<BillEntry> occurrences = queryOccurrences(FIRST_DAY, LAST_DAY, FIRST_DAY, 0, NO_LIMIT);
+        BillColumns.Builder builder = new BillColumns.Builder(expectedCount);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor res = db.rawQuery("select id, name, amount, date, notification from bills where repeat_unit = 0 and paid_day is null order by date, id", null);
+        try {
+            int next = 0;
+            while (res.moveToNext()){
+                int id = res.getInt(0);
+                int day = res.getInt(3);
+                while (next < occurrences.size() && (occurrences.get(next).getDueEpochDay() < day ||
+                        (occurrences.get(next).getDueEpochDay() == day && occurrences.get(next).getId() < id))){
+                    builder.add(occurrences.get(next++));
+                }
+                builder.add(id, res.getString(1), res.getLong(2), day, res.getInt(4), null);
+            }
+            while (next < occurrences.size()){
+                builder.add(occurrences.get(next++));
+            }
+        }
+        finally {
+            res.close();
         }
-        return allEntries;
+        return builder.build();
     }
 
     /**
-     * Returns all records from the database in BillEntry type
-     * @return ArrayList<BillEntry> All records in the database in BillEntry type
+     * Maps the snapshot of the unpaid bills written after the last change, without opening
+     * the database
+     * @return BillSnapshot The snapshot, or null if there is none or it is stale or corrupt
      */
-    public ArrayList<BillEntry> getAllBillsInFormat(){
-        ArrayList<BillEntry> allEntries = new ArrayList<>();
+    public BillSnapshot readSnapshot(){
+        return BillSnapshot.open(snapshotFile, DATABASE_VERSION);
+    }
 
+    /**
+     * Writes the snapshot of the unpaid bills as the database holds them now. The snapshot
+     * is dropped instead if a write commits while the bills are being read
+     * @return boolean True if the snapshot was written
+     */
+    public boolean writeSnapshot(){
+        long generation;
+        synchronized (snapshotFile){
+            // Waits for a write committing now, so the bills below are read after it
+            generation = snapshotGeneration.get();
+        }
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor res = db.rawQuery("select * from bills order by date", null);
-        res.moveToFirst();
+        Cursor res = db.rawQuery("select * from bills where paid_day is null order by date, id", null);
+        List<BillEntry> bills = BillRowMapper.readAll(res);
+        synchronized (snapshotFile){
+            if (generation != snapshotGeneration.get()){
+                return false;
+            }
+            try {
+                BillSnapshot.write(snapshotFile, DATABASE_VERSION, bills);
+                return true;
+            }
+            catch (IOException e){
+                snapshotFile.delete();
+                return false;
+            }
+        }
+    }
 
-        while (res.isAfterLast() == false){
-            String title = res.getString(res.getColumnIndex(BILL_COLUMN_NAME));
-            String amount = res.getString(res.getColumnIndex(BILL_COLUMN_AMOUNT));
-            String date = res.getString(res.getColumnIndex(BILL_COLUMN_DUEDATE));
-            String notification = res.getString(res.getColumnIndex(BILL_NOTIFICATION_CHOICE));
+    /**
+     * Ends the transaction of a write to the unpaid bills, committing it if it succeeded.
+     * Their snapshot is deleted and the snapshot generation bumped before the commit, while
+     * holding the lock writeSnapshot publishes under, so a snapshot read before the commit is
+     * either deleted here or dropped by writeSnapshot, and never outlives the commit. Were the
+     * process to die after the commit but before the snapshot is written again, the next
+     * start finds no snapshot and reads SQLite rather than stale bills. A cache load in
+     * progress is dropped the same way, before the commit
+     * @param db The writable database, inside the write's transaction
+     */
+    private void endWrite(SQLiteDatabase db){
+        billCache.beginWrite();
+        synchronized (snapshotFile){
+            snapshotGeneration.incrementAndGet();
+            if (snapshotFile.exists()){
+                snapshotFile.delete();
+            }
+            db.endTransaction();
+        }
+    }
 
-            BillEntry created = new BillEntry(title, amount, date, notification);
-            allEntries.add(created);
-            res.moveToNext();
+    /**
+     * Queues the snapshot to be written on the writer thread once the writes queued before
+     * it are done. A snapshot already queued covers this change too, so a batch of changes
+     * writes it once
+     */
+    private void queueSnapshot(){
+        snapshotGeneration.incrementAndGet();
+        if (!snapshotQueued.compareAndSet(false, true)){
+            return;
         }
-        return allEntries;
+        new AsyncDatabase(this).write(new AsyncDatabase.Operation<Boolean>() {
+            @Override
+            public Boolean run(DatabaseHelper databaseHelper) {
+                snapshotQueued.set(false);
+                return databaseHelper.writeSnapshot();
+            }
+        }, null);
     }
 
-}
\ No newline at end of file
+}
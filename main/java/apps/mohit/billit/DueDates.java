@@ -0,0 +1,320 @@
+package apps.mohit.billit;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * This class converts bill due dates between the yyyy-MM-dd text that the user sees and the
+ * epoch day (number of days since 1970-01-01) that is stored in the local SQLite database.
+ * Storing the due date as an integer lets the database compare and sort dates numerically.
+ * The conversions are done with integer arithmetic on the proleptic Gregorian calendar, so
+ * they allocate nothing but the formatted string, and today's date is cached until the day
+ * ends in the device's time zone
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class DueDates {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;     // The number of milliseconds in a day
+    private static final int DAYS_PER_ERA = 146097;                      // The days in 400 Gregorian years
+    private static final int DAYS_0000_TO_1970 = 719468;                 // The days from 0000-03-01 to 1970-01-01
+
+    private static volatile Today cachedToday;     // Today's date in the device's time zone, until the day ends
+
+    /**
+     * Today's epoch day and the moments the day starts and ends in the device's time zone
+     */
+    private static final class Today {
+
+        private final int epochDay;           // Today as an epoch day
+        private final long startMillis;       // The moment today started
+        private final long endMillis;         // The moment tomorrow starts
+
+        private Today(int epochDay, long startMillis, long endMillis){
+            this.epochDay = epochDay;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    private DueDates(){
+
+    }
+
+    /**
+     * Returns the epoch day of the given calendar date. A day past the end of the month
+     * rolls over into the next month, e.g. February 30 is March 1 or 2
+     * @param year The year of the date
+     * @param month The month of the date, from 1 to 12
+     * @param day The day of the month
+     * @return int The number of days since 1970-01-01
+     */
+    public static int of(int year, int month, int day){
+        // Count years from March, so the leap day is the last day of the year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Returns the year of the given date
+     * @param epochDay The number of days since 1970-01-01
+     * @return int The year
+     */
+    public static int year(int epochDay){
+        int dayOfEra = dayOfEra(epochDay);
+        int yearOfEra = yearOfEra(dayOfEra);
+        int year = yearOfEra + era(epochDay) * 400;
+        return marchMonth(dayOfEra, yearOfEra) >= 10 ? year + 1 : year;
+    }
+
+    /**
+     * Returns the month of the given date
+     * @param epochDay The number of days since 1970-01-01
+     * @return int The month, from 1 to 12
+     */
+    public static int month(int epochDay){
+        int dayOfEra = dayOfEra(epochDay);
+        int marchMonth = marchMonth(dayOfEra, yearOfEra(dayOfEra));
+        return marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+    }
+
+    /**
+     * Returns the day of the month of the given date
+     * @param epochDay The number of days since 1970-01-01
+     * @return int The day of the month, from 1 to 31
+     */
+    public static int dayOfMonth(int epochDay){
+        int dayOfEra = dayOfEra(epochDay);
+        int yearOfEra = yearOfEra(dayOfEra);
+        int dayOfYear = dayOfYear(dayOfEra, yearOfEra);
+        return dayOfYear - (153 * marchMonth(dayOfEra, yearOfEra) + 2) / 5 + 1;
+    }
+
+    /**
+     * Parses a date in the yyyy-MM-dd format into its epoch day. The month and day may be
+     * written without their leading zero
+     * @param date The date in string format
+     * @return int The number of days since 1970-01-01
+     * @throws NumberFormatException if the date is not in the yyyy-MM-dd format or names a
+     * day that does not exist
+     */
+    public static int parse(String date){
+        int length = date.length();
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int field = 0;
+        int digits = 0;
+        int value = 0;
+        for (int i = 0; i <= length; i++){
+            char c = i < length ? date.charAt(i) : '-';
+            if (c >= '0' && c <= '9' && digits < 9){
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+            else if (c == '-' && digits > 0 && field < 3){
+                if (field == 0){
+                    year = value;
+                }
+                else if (field == 1){
+                    month = value;
+                }
+                else{
+                    day = value;
+                }
+                field++;
+                digits = 0;
+                value = 0;
+            }
+            else{
+                throw new NumberFormatException("Not a yyyy-MM-dd date: " + date);
+            }
+        }
+        if (field != 3 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)){
+            throw new NumberFormatException("Not a yyyy-MM-dd date: " + date);
+        }
+        return of(year, month, day);
+    }
+
+    /**
+     * Formats an epoch day into the yyyy-MM-dd format
+     * @param epochDay The number of days since 1970-01-01
+     * @return String The date in string format
+     */
+    public static String format(int epochDay){
+        int dayOfEra = dayOfEra(epochDay);
+        int yearOfEra = yearOfEra(dayOfEra);
+        int marchMonth = marchMonth(dayOfEra, yearOfEra);
+        int year = yearOfEra + era(epochDay) * 400 + (marchMonth >= 10 ? 1 : 0);
+        int month = marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+        int day = dayOfYear(dayOfEra, yearOfEra) - (153 * marchMonth + 2) / 5 + 1;
+        if (year < 0 || year > 9999){
+            return String.format("%04d-%02d-%02d", year, month, day);
+        }
+        char[] text = new char[10];
+        text[0] = (char) ('0' + year / 1000);
+        text[1] = (char) ('0' + year / 100 % 10);
+        text[2] = (char) ('0' + year / 10 % 10);
+        text[3] = (char) ('0' + year % 10);
+        text[4] = '-';
+        text[5] = (char) ('0' + month / 10);
+        text[6] = (char) ('0' + month % 10);
+        text[7] = '-';
+        text[8] = (char) ('0' + day / 10);
+        text[9] = (char) ('0' + day % 10);
+        return new String(text);
+    }
+
+    /**
+     * Returns today's date, as seen in the device's time zone, as an epoch day
+     * @return int Today's epoch day
+     */
+    public static int today(){
+        return today(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the date, as seen in the device's time zone, at the given moment. The date of
+     * the current day is kept until the day ends, so most calls only compare the moment
+     * @param nowMillis The moment in milliseconds since the epoch
+     * @return int The epoch day of the moment
+     */
+    static int today(long nowMillis){
+        Today today = cachedToday;
+        if (today != null && nowMillis >= today.startMillis && nowMillis < today.endMillis){
+            return today.epochDay;
+        }
+        TimeZone zone = TimeZone.getDefault();
+        int offset = zone.getOffset(nowMillis);
+        long localMillis = nowMillis + offset;
+        int epochDay = (int) ((localMillis >= 0 ? localMillis : localMillis - MILLIS_PER_DAY + 1)
+                / MILLIS_PER_DAY);
+        long startMillis = epochDay * MILLIS_PER_DAY;
+        startMillis -= zone.getOffset(startMillis - offset);
+        long endMillis = (epochDay + 1) * MILLIS_PER_DAY;
+        endMillis -= zone.getOffset(endMillis - offset);
+        // Stay within the day the moment was seen in, if an offset change blurs the boundaries
+        today = new Today(epochDay, Math.min(startMillis, nowMillis),
+                Math.max(endMillis, nowMillis + 1));
+        cachedToday = today;
+        return epochDay;
+    }
+
+    /**
+     * Forgets the cached date of today, so it is looked up again once the clock or the time
+     * zone of the device changes
+     */
+    public static void resetToday(){
+        cachedToday = null;
+    }
+
+    /**
+     * Returns the date one calendar month from today as an epoch day
+     * @return int The epoch day one month from today
+     */
+    public static int oneMonthFromToday(){
+        return addMonths(today(), 1);
+    }
+
+    /**
+     * Returns the date a number of calendar months after the given date. A day of the month
+     * past the end of the later month falls on its last day, e.g. Jan 31 plus one month is
+     * Feb 28 or 29
+     * @param epochDay The number of days since 1970-01-01
+     * @param months The number of months to add
+     * @return int The epoch day of the later date
+     */
+    public static int addMonths(int epochDay, int months){
+        int monthIndex = monthIndex(epochDay) + months;
+        int year = (monthIndex >= 0 ? monthIndex : monthIndex - 11) / 12;
+        int month = monthIndex - year * 12 + 1;
+        return of(year, month, Math.min(dayOfMonth(epochDay), lengthOfMonth(year, month)));
+    }
+
+    /**
+     * Returns the number of months from year 0 to the month the given date is in, so two
+     * dates can be compared by month
+     * @param epochDay The number of days since 1970-01-01
+     * @return int The year times 12 plus the month, from 0 to 11
+     */
+    public static int monthIndex(int epochDay){
+        return year(epochDay) * 12 + month(epochDay) - 1;
+    }
+
+    /**
+     * Returns the number of days in the given month
+     * @param year The year of the month
+     * @param month The month, from 1 to 12
+     * @return int The number of days, from 28 to 31
+     */
+    public static int lengthOfMonth(int year, int month){
+        switch (month){
+            case 2:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the moment the given hour starts on the given date in the device's time zone
+     * @param epochDay The number of days since 1970-01-01
+     * @param hour The hour of the day, from 0 to 23
+     * @return long The moment in milliseconds since the epoch
+     */
+    public static long atLocalHour(int epochDay, int hour){
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(year(epochDay), month(epochDay) - 1, dayOfMonth(epochDay), hour, 0, 0);
+        return local.getTimeInMillis();
+    }
+
+    /**
+     * Returns the number of 400 year eras from 0000-03-01 to the given date
+     */
+    private static int era(int epochDay){
+        int days = epochDay + DAYS_0000_TO_1970;
+        return (days >= 0 ? days : days - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+    }
+
+    /**
+     * Returns the day of the given date within its era, from 0 to 146096
+     */
+    private static int dayOfEra(int epochDay){
+        return epochDay + DAYS_0000_TO_1970 - era(epochDay) * DAYS_PER_ERA;
+    }
+
+    /**
+     * Returns the year within its era of the year, starting in March, that holds the day
+     */
+    private static int yearOfEra(int dayOfEra){
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    }
+
+    /**
+     * Returns the day within its year, starting in March, from 0 to 365
+     */
+    private static int dayOfYear(int dayOfEra, int yearOfEra){
+        return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    }
+
+    /**
+     * Returns the month counted from March, from 0 for March to 11 for February
+     */
+    private static int marchMonth(int dayOfEra, int yearOfEra){
+        return (5 * dayOfYear(dayOfEra, yearOfEra) + 2) / 153;
+    }
+
+}
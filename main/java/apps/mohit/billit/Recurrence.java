@@ -0,0 +1,227 @@
+package apps.mohit.billit;
+
+import java.util.List;
+
+/**
+ * This class is the repeat rule of a recurring bill: every N days, weeks or months from the
+ * first due date, until an end date or for a number of times, or with no end. The rule is
+ * stored once with the bill, and its occurrences are worked out only for the dates being
+ * looked at. Every occurrence is counted from the first due date, so monthly bills due on
+ * the 31st fall on the last day of shorter months without drifting. Occurrences that have
+ * been paid are skipped by marking the rule paid through the last one paid
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class Recurrence {
+
+    public static final int NONE = 0;              // The unit stored for a bill that does not repeat
+    public static final int DAYS = 1;
+    public static final int WEEKS = 2;
+    public static final int MONTHS = 3;
+    public static final int NO_COUNT = 0;          // The count stored when the occurrences are not counted
+    public static final int NO_OCCURRENCE = Integer.MAX_VALUE;   // Returned when no occurrence is left
+    public static final int NOT_PAID = Integer.MIN_VALUE;        // The paid through day before any occurrence is paid
+
+    private final int unit;          // DAYS, WEEKS or MONTHS
+    private final int every;         // The number of units between occurrences
+    private final int startDay;      // The first due date, as an epoch day
+    private final int untilDay;      // The last day an occurrence may fall on, NO_OCCURRENCE for none
+    private final int count;         // The number of occurrences, or NO_COUNT
+    private final int paidThroughDay;   // The due date of the last occurrence paid, or NOT_PAID
+
+    /**
+     * The constructor of the repeat rule
+     * @param unit DAYS, WEEKS or MONTHS
+     * @param every The number of units between occurrences, at least 1
+     * @param startDay The first due date, as an epoch day
+     * @param untilDay The last day an occurrence may fall on, or NO_OCCURRENCE for no end date
+     * @param count The number of occurrences, or NO_COUNT
+     * @throws IllegalArgumentException if the unit or interval is not valid
+     */
+    public Recurrence(int unit, int every, int startDay, int untilDay, int count){
+        this(unit, every, startDay, untilDay, count, NOT_PAID);
+    }
+
+    /**
+     * The constructor of a repeat rule whose occurrences up to a day have been paid
+     * @param unit DAYS, WEEKS or MONTHS
+     * @param every The number of units between occurrences, at least 1
+     * @param startDay The first due date, as an epoch day
+     * @param untilDay The last day an occurrence may fall on, or NO_OCCURRENCE for no end date
+     * @param count The number of occurrences, or NO_COUNT
+     * @param paidThroughDay The due date of the last occurrence paid, or NOT_PAID
+     * @throws IllegalArgumentException if the unit or interval is not valid
+     */
+    public Recurrence(int unit, int every, int startDay, int untilDay, int count,
+                      int paidThroughDay){
+        if (unit != DAYS && unit != WEEKS && unit != MONTHS){
+            throw new IllegalArgumentException("Unknown repeat unit " + unit);
+        }
+        if (every < 1 || count < 0){
+            throw new IllegalArgumentException("The interval must be at least 1 and the count positive");
+        }
+        this.unit = unit;
+        this.every = every;
+        this.startDay = startDay;
+        this.untilDay = untilDay;
+        this.count = count;
+        this.paidThroughDay = paidThroughDay;
+    }
+
+    public int getUnit(){
+        return unit;
+    }
+
+    public int getEvery(){
+        return every;
+    }
+
+    public int getStartDay(){
+        return startDay;
+    }
+
+    public int getUntilDay(){
+        return untilDay;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public int getPaidThroughDay(){
+        return paidThroughDay;
+    }
+
+    /**
+     * Returns the same rule starting from a different first due date
+     * @param day The new first due date, as an epoch day
+     * @return Recurrence The moved rule
+     */
+    public Recurrence startingOn(int day){
+        return new Recurrence(unit, every, day, untilDay, count, paidThroughDay);
+    }
+
+    /**
+     * Returns the same rule with every occurrence due on or before the given day paid
+     * @param day The due date of the last occurrence paid, as an epoch day
+     * @return Recurrence The rule without those occurrences
+     */
+    public Recurrence paidThrough(int day){
+        return new Recurrence(unit, every, startDay, untilDay, count,
+                Math.max(paidThroughDay, day));
+    }
+
+    /**
+     * Returns the due date of an occurrence, without checking the end of the rule
+     * @param index The number of the occurrence, 0 for the first due date
+     * @return int The due date as an epoch day
+     */
+    public int occurrence(int index){
+        switch (unit){
+            case DAYS:
+                return (int) (startDay + (long) index * every);
+            case WEEKS:
+                return (int) (startDay + (long) index * every * 7);
+            default:
+                return DueDates.addMonths(startDay, index * every);
+        }
+    }
+
+    /**
+     * Returns the last day an occurrence can fall on, which is stored with the bill so the
+     * bills repeating over a date range can be found without expanding any of them
+     * @return int The epoch day, or NO_OCCURRENCE if the rule has no end
+     */
+    public int lastDay(){
+        if (count == NO_COUNT){
+            return untilDay;
+        }
+        return Math.min(untilDay, occurrence(count - 1));
+    }
+
+    /**
+     * Returns the due date of the first unpaid occurrence on or after the given day
+     * @param day The earliest due date wanted, as an epoch day
+     * @return int The due date as an epoch day, or NO_OCCURRENCE if the rule ends before it
+     */
+    public int nextOnOrAfter(int day){
+        int index = firstIndexOnOrAfter(day);
+        return isOccurrence(index) ? occurrence(index) : NO_OCCURRENCE;
+    }
+
+    /**
+     * Adds the unpaid occurrences of a recurring bill due between the two days to the given
+     * list, in date order. Only occurrences after the given bill in (date, id) order are added,
+     * so the expansion can carry on from the last bill of a page
+     * @param template The recurring bill, whose due date is the first occurrence
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @param afterDay The due date of the last bill already seen, or DatabaseHelper.FIRST_DAY
+     * @param afterId The id of the last bill already seen
+     * @param limit The most occurrences to add, or DatabaseHelper.NO_LIMIT
+     * @param occurrences The list the occurrences are added to
+     */
+    public void expand(BillEntry template, int fromDay, int toDay, int afterDay, int afterId,
+                       int limit, List<BillEntry> occurrences){
+        int added = 0;
+        for (int index = firstIndexOnOrAfter(Math.max(fromDay, afterDay));
+             isOccurrence(index) && (limit < 0 || added < limit); index++){
+            int day = occurrence(index);
+            if (day > toDay){
+                return;
+            }
+            if (day == afterDay && template.getId() <= afterId){
+                continue;
+            }
+            occurrences.add(template.occurrenceOn(day));
+            added++;
+        }
+    }
+
+    /**
+     * Returns the number of unpaid occurrences due between the two days
+     * @param fromDay The first due date to include, as an epoch day
+     * @param toDay The last due date to include, as an epoch day
+     * @return int The number of occurrences
+     */
+    public int countBetween(int fromDay, int toDay){
+        int first = firstIndexOnOrAfter(fromDay);
+        int index = first;
+        while (isOccurrence(index) && occurrence(index) <= toDay){
+            index++;
+        }
+        return index - first;
+    }
+
+    /**
+     * Returns true if the occurrence with the given number is within the end of the rule
+     */
+    private boolean isOccurrence(int index){
+        return (count == NO_COUNT || index < count) && occurrence(index) <= untilDay;
+    }
+
+    /**
+     * Returns the number of the first unpaid occurrence due on or after the given day
+     */
+    private int firstIndexOnOrAfter(int day){
+        if (paidThroughDay != NOT_PAID && day <= paidThroughDay){
+            day = paidThroughDay == Integer.MAX_VALUE ? paidThroughDay : paidThroughDay + 1;
+        }
+        if (day <= startDay){
+            return 0;
+        }
+        if (unit != MONTHS){
+            long step = unit == WEEKS ? every * 7L : every;
+            return (int) Math.min(Integer.MAX_VALUE - 1, ((long) day - startDay + step - 1) / step);
+        }
+        int months = DueDates.monthIndex(day) - DueDates.monthIndex(startDay);
+        int index = Math.max(0, months / every - 1);
+        while (occurrence(index) < day){
+            index++;
+        }
+        return index;
+    }
+
+}
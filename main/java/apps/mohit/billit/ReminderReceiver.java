@@ -0,0 +1,105 @@
+package apps.mohit.billit;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.support.v7.app.NotificationCompat;
+
+import java.util.List;
+import java.util.Map;
+
+import apps.mohit.billit.Activities.MainActivity;
+
+/**
+ * This class receives the reminder alarm armed by the ReminderScheduler and delivers the
+ * reminders that are due. It also receives the device restarting and clock changes, after
+ * which the alarm has to be armed again. Each bill gets its own notification, keyed by its
+ * id and tagged with its account, since the ids of two accounts' databases can be the same.
+ * The bills delivered together are grouped under one summary notification
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public class ReminderReceiver extends BroadcastReceiver {
+
+    private static final String NOTIFICATION_GROUP = "apps.mohit.billit.BILLS_DUE";
+    private static final int SUMMARY_NOTIFICATION_ID = 0;     // Posted without a tag, so this never clashes with a bill
+
+    /**
+     * Delivers the due reminders if the alarm went off. Otherwise the clock may have changed,
+     * so the cached date of today is dropped and the alarm is re-armed
+     * @param context The context the receiver is running in
+     * @param intent The broadcast received
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        if (ReminderScheduler.ACTION_DELIVER.equals(intent.getAction())){
+            ReminderScheduler.deliverDueReminders(appContext, goAsync());
+        }
+        else{
+            DueDates.resetToday();
+            ReminderScheduler.reschedule(appContext);
+        }
+    }
+
+    /**
+     * Posts a notification for each of the given bills, grouped under a summary notification
+     * when there is more than one. The bills of an account other than the default one are
+     * labelled with the name of their account
+     * @param context The application context
+     * @param billsByAccount The bills to remind the user of, keyed by their account
+     */
+    static void notifyBillsDue(Context context, Map<String, List<BillEntry>> billsByAccount){
+        int count = 0;
+        for (List<BillEntry> bills : billsByAccount.values()){
+            count += bills.size();
+        }
+        if (count == 0){
+            return;
+        }
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        PendingIntent openApp = PendingIntent.getActivity(context, 0,
+                new Intent(context, MainActivity.class), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        NotificationCompat.InboxStyle summaryStyle = new NotificationCompat.InboxStyle();
+        for (Map.Entry<String, List<BillEntry>> account : billsByAccount.entrySet()){
+            for (BillEntry entry : account.getValue()){
+                String text = String.format("Amount : $%s for %s by %s",
+                        BillFormat.formatCents(entry.getAmountCents()), entry.getTitle(),
+                        entry.getDueDateText());
+                summaryStyle.addLine(text);
+
+                NotificationCompat.Builder mBuilder = new NotificationCompat.Builder(context);
+                mBuilder.setSmallIcon(R.mipmap.app_logo);
+                mBuilder.setContentTitle("You Have A Bill Due");
+                mBuilder.setContentText(text);
+                if (!BillAccounts.DEFAULT_ACCOUNT.equals(account.getKey())){
+                    mBuilder.setSubText(account.getKey());
+                }
+                mBuilder.setContentIntent(openApp);
+                mBuilder.setGroup(NOTIFICATION_GROUP);
+                mBuilder.setAutoCancel(true);
+                notificationManager.notify(account.getKey(), entry.getId(), mBuilder.build());
+            }
+        }
+
+        if (count > 1){
+            String title = String.format("You Have %d Bills Due", count);
+            NotificationCompat.Builder mBuilder = new NotificationCompat.Builder(context);
+            mBuilder.setSmallIcon(R.mipmap.app_logo);
+            mBuilder.setContentTitle(title);
+            mBuilder.setStyle(summaryStyle.setBigContentTitle(title));
+            mBuilder.setContentIntent(openApp);
+            mBuilder.setGroup(NOTIFICATION_GROUP);
+            mBuilder.setGroupSummary(true);
+            mBuilder.setAutoCancel(true);
+            notificationManager.notify(SUMMARY_NOTIFICATION_ID, mBuilder.build());
+        }
+    }
+
+}
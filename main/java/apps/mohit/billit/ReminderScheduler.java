@@ -0,0 +1,199 @@
+package apps.mohit.billit;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class keeps a single alarm registered for the next day that has bill reminders to
+ * deliver. The alarm goes off at REMINDER_HOUR on that day whether or not the app is open,
+ * and the ReminderReceiver delivers the reminders and arms the alarm for the following day.
+ * Each reminder row records whether it has been delivered, so a reminder saved for today
+ * after today's reminders went out makes the alarm go off again straight away.
+ * The alarm is re-armed whenever a bill with a reminder is saved or deleted, and after the
+ * device restarts, since alarms do not survive a reboot. Reminders are delivered for every
+ * account, not only the active one, so the alarm is armed for the earliest day any account
+ * has reminders on. The delivered flags live in the database of each account, so switching
+ * accounts neither repeats nor skips the reminders of any of them
+ *
+ * @author Mohit Kewalramani
+ * @version 3.0
+ * @since 2026-10-18
+ */
+public final class ReminderScheduler {
+
+    public static final int REMINDER_HOUR = 9;                       // The hour of the day reminders are delivered at
+    private static final String TAG = "ReminderScheduler";          // The tag of the failures logged
+    static final String ACTION_DELIVER = "apps.mohit.billit.action.DELIVER_REMINDERS";
+
+    private ReminderScheduler(){
+
+    }
+
+    /**
+     * Starts keeping the alarm in step with the reminders table. This is called once when
+     * the application process starts
+     * @param context The application context
+     */
+    public static void start(final Context context){
+        final Context appContext = context.getApplicationContext();
+        DatabaseHelper.addAccountChangeListener(new DatabaseHelper.AccountChangeListener() {
+            @Override
+            public void onBillChanged(String account, BillChange change) {
+                if (affectsReminders(change)){
+                    reschedule(appContext);
+                }
+            }
+        });
+        reschedule(appContext);
+    }
+
+    /**
+     * Looks up the next day any account has reminders that have not been delivered yet on
+     * and arms the alarm for it, or cancels the alarm if there is none. A reminder still to
+     * deliver from today or before makes the alarm go off straight away
+     * @param context The application context
+     */
+    public static void reschedule(final Context context){
+        asyncDatabase(context).read(new AsyncDatabase.Operation<Integer>() {
+            @Override
+            public Integer run(DatabaseHelper databaseHelper) {
+                int nextDay = DatabaseHelper.LAST_DAY;
+                for (DatabaseHelper account : accountHelpers(context)){
+                    nextDay = Math.min(nextDay, account.getNextReminderDay());
+                }
+                return nextDay;
+            }
+        }, new AsyncDatabase.Callback<Integer>() {
+            @Override
+            public void onResult(Integer nextDay) {
+                arm(context, nextDay);
+            }
+        });
+    }
+
+    /**
+     * Delivers the reminders of every day up to today that have not been delivered yet, for
+     * the bills of every account that are not past due, and arms the alarm for the next day
+     * any account has reminders on.
+     * The reminders are marked as delivered and those of recurring bills moved on to their
+     * next occurrence as they are read, which is why this runs on the writer thread. This is
+     * called by the ReminderReceiver when the alarm goes off. If the reminders cannot be
+     * read, the alarm is armed for tomorrow so a failure never stops reminders for good
+     * @param context The application context
+     * @param pendingResult The receiver's pending broadcast, finished once the alarm is re-armed
+     */
+    static void deliverDueReminders(final Context context,
+                                    final BroadcastReceiver.PendingResult pendingResult){
+        final int today = DueDates.today();
+        asyncDatabase(context).write(new AsyncDatabase.Operation<DueReminders>() {
+            @Override
+            public DueReminders run(DatabaseHelper databaseHelper) {
+                DueReminders due = new DueReminders();
+                due.nextDay = DatabaseHelper.LAST_DAY;
+                for (DatabaseHelper account : accountHelpers(context)){
+                    List<BillEntry> bills = account.takeDueReminders(today);
+                    if (!bills.isEmpty()){
+                        due.bills.put(account.getAccount(), bills);
+                    }
+                    due.nextDay = Math.min(due.nextDay, account.getNextReminderDay());
+                }
+                return due;
+            }
+        }, new AsyncDatabase.Callback<DueReminders>() {
+            @Override
+            public void onResult(DueReminders due) {
+                try {
+                    ReminderReceiver.notifyBillsDue(context, due.bills);
+                }
+                finally {
+                    arm(context, due.nextDay);
+                    pendingResult.finish();
+                }
+            }
+        }, new AsyncDatabase.ErrorCallback() {
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "Could not read the reminders due", error);
+                arm(context, today + 1);
+                pendingResult.finish();
+            }
+        });
+    }
+
+    /**
+     * Registers the alarm for REMINDER_HOUR on the given day, replacing any alarm registered
+     * before. A day whose reminder hour has already passed goes off straight away
+     * @param context The application context
+     * @param fireDay The day to deliver reminders on, or DatabaseHelper.LAST_DAY for none
+     */
+    static void arm(Context context, int fireDay){
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        PendingIntent alarm = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, ReminderReceiver.class).setAction(ACTION_DELIVER),
+                PendingIntent.FLAG_UPDATE_CURRENT);
+        if (fireDay == DatabaseHelper.LAST_DAY){
+            alarmManager.cancel(alarm);
+            return;
+        }
+        alarmManager.set(AlarmManager.RTC_WAKEUP, DueDates.atLocalHour(fireDay, REMINDER_HOUR), alarm);
+    }
+
+    /**
+     * Returns the queue that reads and advances the reminders off the UI thread. Its
+     * operations read every account through accountHelpers rather than the helper they are
+     * handed, which is the active account's
+     * @param context The application context
+     * @return AsyncDatabase The queue
+     */
+    private static AsyncDatabase asyncDatabase(Context context){
+        return new AsyncDatabase(DatabaseHelper.getInstance(context));
+    }
+
+    /**
+     * Returns the helper of every account with a database on the device. This lists the
+     * database directory, so it is only called off the UI thread
+     * @param context The application context
+     * @return List<DatabaseHelper> The helpers, in the alphabetical order of their accounts
+     */
+    private static List<DatabaseHelper> accountHelpers(Context context){
+        List<DatabaseHelper> helpers = new ArrayList<>();
+        for (String account : DatabaseHelper.getAccounts(context)){
+            helpers.add(DatabaseHelper.getInstance(context, account));
+        }
+        return helpers;
+    }
+
+    /**
+     * The reminders to deliver when the alarm goes off, keyed by their account, and the day
+     * to arm it for next
+     */
+    private static class DueReminders {
+        final Map<String, List<BillEntry>> bills = new LinkedHashMap<>();
+        int nextDay;
+    }
+
+    /**
+     * Returns true if the change could add, move or remove a reminder
+     * @param change The change made to the bills table
+     * @return boolean True if the alarm has to be re-armed
+     */
+    private static boolean affectsReminders(BillChange change){
+        if (change.isReset()){
+            return true;
+        }
+        BillEntry before = change.getBefore();
+        BillEntry after = change.getAfter();
+        return (before != null && before.getLeadDays() != BillFormat.NO_NOTIFICATION) ||
+                (after != null && after.getLeadDays() != BillFormat.NO_NOTIFICATION);
+    }
+
+}
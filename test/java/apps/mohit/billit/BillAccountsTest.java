@@ -0,0 +1,79 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that each account is given a database name of its own, that the default account
+ * keeps the database used before accounts existed, and that the accounts are found again
+ * from the files in the database directory
+ */
+public class BillAccountsTest {
+
+    @Test
+    public void defaultAccountKeepsTheOriginalDatabase() throws Exception {
+        assertEquals("BillList.db", BillAccounts.databaseName(BillAccounts.DEFAULT_ACCOUNT));
+        assertEquals(BillAccounts.DEFAULT_ACCOUNT, BillAccounts.accountOf("BillList.db"));
+    }
+
+    @Test
+    public void accountsAreNamedByTheirDatabase() throws Exception {
+        assertEquals("BillList-home.db", BillAccounts.databaseName("home"));
+        assertEquals("home", BillAccounts.accountOf("BillList-home.db"));
+        assertEquals("flat_2-b", BillAccounts.accountOf(BillAccounts.databaseName("flat_2-b")));
+        assertNull(BillAccounts.accountOf("BillList-home.db-wal"));
+        assertNull(BillAccounts.accountOf("BillList-default.db"));
+        assertNull(BillAccounts.accountOf("other.db"));
+    }
+
+    @Test
+    public void accountsAreListedOnceInOrder() throws Exception {
+        String[] files = {"BillList-office.db", "BillList-office.db-journal", "BillList.db",
+                "BillList.db-snapshot", "BillList-home.db", "BillList-home.db-wal"};
+
+        assertEquals(Arrays.asList("default", "home", "office"), BillAccounts.accountsOf(files));
+    }
+
+    @Test
+    public void namesThatAreNotSafeInAFileNameAreRejected() throws Exception {
+        assertFalse(BillAccounts.isValid(null));
+        assertFalse(BillAccounts.isValid(""));
+        assertFalse(BillAccounts.isValid("../home"));
+        assertFalse(BillAccounts.isValid("my home"));
+        assertFalse(BillAccounts.isValid(new String(new char[BillAccounts.MAX_NAME_LENGTH + 1])
+                .replace('\0', 'a')));
+        try {
+            BillAccounts.databaseName("a/b");
+            fail("Accepted a name with a path separator");
+        }
+        catch (IllegalArgumentException expected) {
+            // Only letters, digits, '_' and '-' are allowed
+        }
+    }
+
+    @Test
+    public void totalAddsUpEverySummary() throws Exception {
+        BillSummary home = new BillSummary();
+        home.overdueCount = 1;
+        home.overdueCents = 500;
+        home.allCount = 3;
+        home.allCents = 1500;
+        BillSummary office = new BillSummary();
+        office.thisWeekCount = 2;
+        office.thisWeekCents = 800;
+        office.allCount = 2;
+        office.allCents = 800;
+
+        BillSummary total = BillAccounts.total(Arrays.asList(home, office));
+
+        assertEquals(1, total.overdueCount);
+        assertEquals(500, total.overdueCents);
+        assertEquals(2, total.thisWeekCount);
+        assertEquals(800, total.thisWeekCents);
+        assertEquals(5, total.allCount);
+        assertEquals(2300, total.allCents);
+    }
+}
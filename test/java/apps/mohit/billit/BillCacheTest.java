@@ -0,0 +1,112 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the bill cache answers ranges inside its window, writes changes through, and
+ * evicts the days furthest from today when it is over its cap
+ */
+public class BillCacheTest {
+
+    private static final int TODAY = DueDates.today();
+
+    @Test
+    public void rangesInsideTheWindowAreHits() throws Exception {
+        BillCache cache = cacheOf(TODAY - 10, TODAY + 10, 1, 2, 2, 5);
+
+        assertEquals(4, cache.count(TODAY, TODAY + 5));
+        List<BillEntry> page = cache.getRangeAfter(TODAY, TODAY + 10, TODAY + 2, 3, 10);
+        assertEquals(1, page.size());
+        assertEquals(4, page.get(0).getId());
+        assertEquals(2, cache.getRange(TODAY, TODAY + 10, 2, 0).size());
+        assertNull(cache.getRange(TODAY - 20, TODAY, DatabaseHelper.NO_LIMIT, 0));
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void writesGoThroughToTheWindow() throws Exception {
+        BillCache cache = cacheOf(TODAY - 10, TODAY + 10, 1, 2);
+        BillEntry moved = new BillEntry(1, "Bill 1", 100, TODAY + 9, 0);
+
+        cache.remove(new BillEntry(1, "Bill 1", 100, TODAY + 1, 0));
+        cache.put(moved);
+        cache.put(new BillEntry(9, "Outside", 100, TODAY + 30, 0));
+
+        List<BillEntry> all = cache.peekRange(TODAY - 10, TODAY + 10, DatabaseHelper.NO_LIMIT, 0);
+        assertEquals(2, all.size());
+        assertSame(moved, all.get(1));
+    }
+
+    @Test
+    public void loadRacingAWriteIsDropped() throws Exception {
+        BillCache cache = cacheOf(TODAY, TODAY);
+        long version = cache.version();
+        cache.put(new BillEntry(1, "Bill 1", 100, TODAY, 0));
+
+        assertFalse(cache.install(TODAY - 5, TODAY + 5, new ArrayList<BillEntry>(), version));
+    }
+
+    @Test
+    public void loadOverlappingACommitIsDropped() throws Exception {
+        BillCache cache = cacheOf(TODAY, TODAY);
+        long version = cache.version();
+        cache.beginWrite();
+
+        List<BillEntry> loaded = new ArrayList<>();
+        loaded.add(new BillEntry(1, "Bill 1", 100, TODAY, 0));
+        assertFalse(cache.install(TODAY - 5, TODAY + 5, loaded, version));
+    }
+
+    @Test
+    public void writeAfterALoadOfTheCommittedRowDoesNotDuplicateIt() throws Exception {
+        BillCache cache = cacheOf(TODAY, TODAY);
+        BillEntry before = new BillEntry(1, "Bill 1", 100, TODAY + 1, 0);
+        BillEntry after = new BillEntry(1, "Bill 1", 100, TODAY + 4, 0);
+        cache.beginWrite();
+
+        // A load that starts after the commit reads the bill at its new date
+        List<BillEntry> loaded = new ArrayList<>();
+        loaded.add(after);
+        loaded.add(new BillEntry(2, "Bill 2", 100, TODAY + 2, 0));
+        assertTrue(cache.install(TODAY - 5, TODAY + 5, loaded, cache.version()));
+        cache.remove(before);
+        cache.put(after);
+        cache.put(new BillEntry(2, "Bill 2", 100, TODAY + 2, 0));
+
+        List<BillEntry> all = cache.peekRange(TODAY - 5, TODAY + 5, DatabaseHelper.NO_LIMIT, 0);
+        assertEquals(2, all.size());
+        assertEquals(2, all.get(0).getId());
+        assertSame(after, all.get(1));
+    }
+
+    @Test
+    public void farthestDaysAreEvictedOverTheCap() throws Exception {
+        BillCache cache = cacheOf(TODAY - 100, TODAY + 100, -90, -1, 0, 3, 50);
+
+        cache.setMaxBills(3);
+
+        assertEquals(3, cache.count(TODAY - 1, TODAY + 3));
+        assertEquals(-1, cache.count(TODAY - 100, TODAY));
+        assertEquals(-1, cache.count(TODAY, TODAY + 50));
+    }
+
+    /**
+     * Returns a cache whose window holds one bill due on each of the given days from today
+     */
+    private static BillCache cacheOf(int fromDay, int toDay, int... daysFromToday) {
+        BillCache cache = BillCache.forDatabase("test-" + System.nanoTime());
+        List<BillEntry> bills = new ArrayList<>();
+        for (int i = 0; i < daysFromToday.length; i++) {
+            bills.add(new BillEntry(i + 1, "Bill " + (i + 1), 100, TODAY + daysFromToday[i], 0));
+        }
+        assertTrue(cache.install(fromDay, toDay, bills, cache.version()));
+        return cache;
+    }
+}
@@ -0,0 +1,208 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips bills through the CSV and JSON codecs used to import and export the bills table
+ */
+public class BillCodecTest {
+
+    private static final List<BillEntry> BILLS = Arrays.asList(
+            new BillEntry(1, "Rent", 95000, DueDates.of(2026, 11, 1), 3),
+            new BillEntry(2, "Water, \"city\"\nservices", 4207, DueDates.of(2026, 11, 15), 0),
+            new BillEntry(3, "Refund", -1505, DueDates.of(2027, 1, 2), 14),
+            new BillEntry(4, "Phone", 4500, DueDates.of(2026, 11, 5), 3,
+                    new Recurrence(Recurrence.MONTHS, 1, DueDates.of(2026, 11, 5),
+                            DueDates.of(2027, 11, 5), Recurrence.NO_COUNT, DueDates.of(2026, 12, 5))),
+            new BillEntry(5, "Cleaner", 6000, DueDates.of(2026, 11, 6), 0,
+                    new Recurrence(Recurrence.WEEKS, 2, DueDates.of(2026, 11, 6),
+                            Recurrence.NO_OCCURRENCE, 10)));
+
+    @Test
+    public void csv_roundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        BillSink sink = BillCsv.sink(out);
+        for (BillEntry entry : BILLS) {
+            sink.write(entry);
+        }
+        sink.close();
+
+        assertTrue(out.toString().startsWith(BillCsv.HEADER + "\r\n"));
+        assertBillsEqual(BILLS, readAll(BillCsv.source(new StringReader(out.toString()))));
+    }
+
+    @Test
+    public void csv_columnsInAnyOrderAndNotificationOptional() throws Exception {
+        String csv = "date,name,amount\n2026-11-01,Rent,950\n\n2026-12-01,Phone,45.5\n";
+        List<BillEntry> bills = readAll(BillCsv.source(new StringReader(csv)));
+
+        assertEquals(2, bills.size());
+        assertEquals("Phone", bills.get(1).getTitle());
+        assertEquals(4550, bills.get(1).getAmountCents());
+        assertEquals(BillFormat.NO_NOTIFICATION, bills.get(1).getLeadDays());
+    }
+
+    @Test
+    public void csv_malformedRecordIsSkipped() throws Exception {
+        String csv = "name,amount,date,notification\nRent,lots,2026-11-01,0\nPhone,45.50,2026-12-01,3\n";
+        BillSource source = BillCsv.source(new StringReader(csv));
+        try {
+            source.next();
+            fail("Expected the malformed amount to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+        assertEquals("Phone", source.next().getTitle());
+        assertNull(source.next());
+    }
+
+    @Test
+    public void invalidRepeatRulesAreRejected() throws Exception {
+        String csv = "name,amount,date,repeat\nRent,950,2026-11-01,fortnights\nPhone,45,2026-12-01,\n";
+        BillSource source = BillCsv.source(new StringReader(csv));
+        try {
+            source.next();
+            fail("Expected the unknown repeat unit to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+        assertNull(source.next().getRecurrence());
+
+        String json = "[{\"name\":\"Rent\",\"amount\":950,\"date\":\"2026-11-01\","
+                + "\"repeat\":\"months\",\"repeat_every\":0}]";
+        try {
+            BillJson.source(new StringReader(json)).next();
+            fail("Expected the zero interval to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void unsupportedLeadDaysAreRejected() throws Exception {
+        String csv = "name,amount,date,notification\nRent,950,2026-11-01,-2\n"
+                + "Gym,30,2026-11-02,4\nPhone,45,2026-12-01,7\n";
+        BillSource source = BillCsv.source(new StringReader(csv));
+        for (int i = 0; i < 2; i++) {
+            try {
+                source.next();
+                fail("Expected the lead days to be rejected");
+            }
+            catch (NumberFormatException expected) {
+            }
+        }
+        assertEquals(7, source.next().getLeadDays());
+
+        try {
+            BillJson.source(new StringReader(
+                    "[{\"name\":\"Rent\",\"amount\":950,\"date\":\"2026-11-01\",\"notification\":400}]")).next();
+            fail("Expected the lead days to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+    }
+
+    @Test
+    public void missingTitleIsWrittenEmpty() throws Exception {
+        StringWriter csv = new StringWriter();
+        BillSink sink = BillCsv.sink(csv);
+        sink.write(new BillEntry(1, null, 950, DueDates.of(2026, 11, 1), 0));
+        sink.close();
+        assertEquals("", readAll(BillCsv.source(new StringReader(csv.toString()))).get(0).getTitle());
+
+        StringWriter json = new StringWriter();
+        sink = BillJson.sink(json);
+        sink.write(new BillEntry(1, null, 950, DueDates.of(2026, 11, 1), 0));
+        sink.close();
+        assertEquals("", readAll(BillJson.source(new StringReader(json.toString()))).get(0).getTitle());
+    }
+
+    @Test(expected = IOException.class)
+    public void csv_missingColumnIsRejected() throws Exception {
+        BillCsv.source(new StringReader("name,amount\nRent,950\n"));
+    }
+
+    @Test
+    public void json_roundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        BillSink sink = BillJson.sink(out);
+        for (BillEntry entry : BILLS) {
+            sink.write(entry);
+        }
+        sink.close();
+
+        assertBillsEqual(BILLS, readAll(BillJson.source(new StringReader(out.toString()))));
+    }
+
+    @Test
+    public void json_unknownKeysAreSkipped() throws Exception {
+        String json = "[ {\"id\": 7, \"name\": \"Rent\\u0021\", \"tags\": [\"home\", {\"a\": null}],"
+                + " \"amount\": \"950.00\", \"date\": \"2026-11-01\", \"notification\": null} ]";
+        List<BillEntry> bills = readAll(BillJson.source(new StringReader(json)));
+
+        assertEquals(1, bills.size());
+        assertEquals("Rent!", bills.get(0).getTitle());
+        assertEquals(95000, bills.get(0).getAmountCents());
+        assertEquals(BillFormat.NO_NOTIFICATION, bills.get(0).getLeadDays());
+    }
+
+    @Test
+    public void json_malformedObjectIsSkipped() throws Exception {
+        String json = "[{\"name\":\"Rent\",\"date\":\"2026-11-01\"},"
+                + "{\"name\":\"Phone\",\"amount\":45.5,\"date\":\"2026-12-01\"}]";
+        BillSource source = BillJson.source(new StringReader(json));
+        try {
+            source.next();
+            fail("Expected the bill without an amount to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+        assertEquals("Phone", source.next().getTitle());
+        assertNull(source.next());
+    }
+
+    @Test
+    public void json_emptyArray() throws Exception {
+        assertTrue(readAll(BillJson.source(new StringReader(" [ ] "))).isEmpty());
+    }
+
+    private static List<BillEntry> readAll(BillSource source) throws IOException {
+        List<BillEntry> bills = new ArrayList<>();
+        for (BillEntry entry = source.next(); entry != null; entry = source.next()) {
+            bills.add(entry);
+        }
+        source.close();
+        return bills;
+    }
+
+    private static void assertBillsEqual(List<BillEntry> expected, List<BillEntry> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getAmountCents(), actual.get(i).getAmountCents());
+            assertEquals(expected.get(i).getDueEpochDay(), actual.get(i).getDueEpochDay());
+            assertEquals(expected.get(i).getLeadDays(), actual.get(i).getLeadDays());
+            Recurrence recurrence = expected.get(i).getRecurrence();
+            Recurrence read = actual.get(i).getRecurrence();
+            if (recurrence == null) {
+                assertNull(read);
+                continue;
+            }
+            assertEquals(recurrence.getUnit(), read.getUnit());
+            assertEquals(recurrence.getEvery(), read.getEvery());
+            assertEquals(recurrence.getStartDay(), read.getStartDay());
+            assertEquals(recurrence.getUntilDay(), read.getUntilDay());
+            assertEquals(recurrence.getCount(), read.getCount());
+            assertEquals(recurrence.getPaidThroughDay(), read.getPaidThroughDay());
+        }
+    }
+}
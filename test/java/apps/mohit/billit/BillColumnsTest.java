@@ -0,0 +1,101 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that bills read back from columns are the bills put in, that date ranges and the
+ * summary are found from the due date column, and that titles and repeat rules are stored
+ * once
+ */
+public class BillColumnsTest {
+
+    private static final int TODAY = DueDates.of(2026, 10, 18);
+
+    @Test
+    public void billsReadBackAsTheyWerePutIn() throws Exception {
+        Recurrence weekly = new Recurrence(Recurrence.WEEKS, 1, TODAY - 14,
+                Recurrence.NO_OCCURRENCE, Recurrence.NO_COUNT);
+        BillEntry template = new BillEntry(9, "Rent", 150000, TODAY - 14, 2, weekly);
+        List<BillEntry> bills = new ArrayList<>();
+        bills.add(new BillEntry(3, "Water", 2500, TODAY - 1, 0));
+        bills.add(template.occurrenceOn(TODAY));
+        bills.add(new BillEntry(4, "Water", 2600, TODAY + 6, 3));
+        bills.add(template.occurrenceOn(TODAY + 7));
+
+        BillColumns columns = BillColumns.of(bills);
+
+        assertEquals(4, columns.size());
+        for (int i = 0; i < bills.size(); i++) {
+            BillEntry expected = bills.get(i);
+            BillEntry actual = columns.get(i);
+            assertEquals(expected.getOccurrenceId(), actual.getOccurrenceId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getAmountCents(), actual.getAmountCents());
+            assertEquals(expected.getDueEpochDay(), actual.getDueEpochDay());
+            assertEquals(expected.getLeadDays(), actual.getLeadDays());
+            assertSame(expected.getRecurrence(), actual.getRecurrence());
+        }
+        assertSame(columns.getTitle(0), columns.getTitle(2));
+    }
+
+    @Test
+    public void rangesAreFoundByDueDate() throws Exception {
+        BillColumns columns = columnsDueOn(TODAY - 3, TODAY, TODAY, TODAY + 5, TODAY + 8, TODAY + 30);
+
+        assertEquals(6, columns.between(Integer.MIN_VALUE, Integer.MAX_VALUE).size());
+        List<BillEntry> thisWeek = columns.between(TODAY, TODAY + 7);
+        assertEquals(3, thisWeek.size());
+        assertEquals(TODAY, thisWeek.get(0).getDueEpochDay());
+        assertEquals(TODAY + 5, thisWeek.get(2).getDueEpochDay());
+        assertEquals(1, thisWeek.subList(2, 3).size());
+        assertEquals(TODAY + 5, thisWeek.subList(2, 3).get(0).getDueEpochDay());
+        assertEquals(0, columns.between(TODAY + 9, TODAY + 29).size());
+        try {
+            thisWeek.get(3);
+            fail("Read past the end of the range");
+        }
+        catch (IndexOutOfBoundsException expected) {
+            // The range ends at its last bill
+        }
+    }
+
+    @Test
+    public void summaryAddsUpEachRange() throws Exception {
+        BillColumns columns = columnsDueOn(TODAY - 3, TODAY, TODAY + 7, TODAY + 8, TODAY + 40);
+
+        BillSummary summary = columns.summarize(TODAY, TODAY + 31);
+
+        assertEquals(1, summary.overdueCount);
+        assertEquals(100, summary.overdueCents);
+        assertEquals(2, summary.thisWeekCount);
+        assertEquals(200 + 300, summary.thisWeekCents);
+        assertEquals(3, summary.thisMonthCount);
+        assertEquals(200 + 300 + 400, summary.thisMonthCents);
+        assertEquals(5, summary.allCount);
+        assertEquals(1500, summary.allCents);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void billsMustBeAddedInOrder() throws Exception {
+        new BillColumns.Builder(2)
+                .add(2, "Gas", 100, TODAY, 0, null)
+                .add(1, "Phone", 100, TODAY, 0, null);
+    }
+
+    /**
+     * Returns columns of bills due on the given days, with ids and amounts of 1, 2, 3...
+     * and 100, 200, 300... in order
+     */
+    private static BillColumns columnsDueOn(int... days) {
+        BillColumns.Builder builder = new BillColumns.Builder(days.length);
+        for (int i = 0; i < days.length; i++) {
+            builder.add(i + 1, "Bill " + i, 100 * (i + 1), days[i], 0, null);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,148 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a snapshot reads back the bills written to it, sums the same summary as the
+ * bills expanded one by one, finds the reminders of a day, and is not opened once it is of
+ * another version or corrupt
+ */
+public class BillSnapshotTest {
+
+    private static final int TODAY = DueDates.of(2026, 10, 18);
+    private static final int SCHEMA_VERSION = 9;
+
+    @Test
+    public void billsReadBackAsTheyWereWritten() throws Exception {
+        List<BillEntry> bills = bills();
+        BillSnapshot snapshot = BillSnapshot.open(write(bills), SCHEMA_VERSION);
+
+        assertEquals(bills.size(), snapshot.size());
+        for (int i = 0; i < bills.size(); i++) {
+            BillEntry expected = bills.get(i);
+            BillEntry actual = snapshot.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getAmountCents(), actual.getAmountCents());
+            assertEquals(expected.getDueEpochDay(), actual.getDueEpochDay());
+            assertEquals(expected.getLeadDays(), actual.getLeadDays());
+            assertEquals(expected.getRecurrence() == null, actual.getRecurrence() == null);
+        }
+        Recurrence monthly = snapshot.get(0).getRecurrence();
+        assertEquals(Recurrence.MONTHS, monthly.getUnit());
+        assertEquals(TODAY - 45, monthly.getPaidThroughDay());
+    }
+
+    @Test
+    public void summaryMatchesTheExpandedBills() throws Exception {
+        BillSnapshot snapshot = BillSnapshot.open(write(bills()), SCHEMA_VERSION);
+        int oneMonthFromToday = DueDates.addMonths(TODAY, 1);
+        List<BillEntry> expanded = new ArrayList<>();
+        for (BillEntry entry : bills()) {
+            if (entry.getRecurrence() == null) {
+                expanded.add(entry);
+            }
+            else {
+                entry.getRecurrence().expand(entry, DatabaseHelper.FIRST_DAY,
+                        TODAY + DatabaseHelper.RECURRENCE_HORIZON_DAYS, DatabaseHelper.FIRST_DAY, 0,
+                        DatabaseHelper.NO_LIMIT, expanded);
+            }
+        }
+        int overdue = 0;
+        int thisWeek = 0;
+        int thisMonth = 0;
+        long allCents = 0;
+        for (BillEntry entry : expanded) {
+            int day = entry.getDueEpochDay();
+            overdue += day < TODAY ? 1 : 0;
+            thisWeek += day >= TODAY && day <= TODAY + 7 ? 1 : 0;
+            thisMonth += day >= TODAY && day <= oneMonthFromToday ? 1 : 0;
+            allCents += entry.getAmountCents();
+        }
+
+        BillSummary summary = snapshot.summarize(TODAY, oneMonthFromToday);
+
+        assertEquals(overdue, summary.overdueCount);
+        assertEquals(thisWeek, summary.thisWeekCount);
+        assertEquals(thisMonth, summary.thisMonthCount);
+        assertEquals(expanded.size(), summary.allCount);
+        assertEquals(allCents, summary.allCents);
+    }
+
+    @Test
+    public void remindersOfTheDayAreFoundForOneOffAndRecurringBills() throws Exception {
+        BillSnapshot snapshot = BillSnapshot.open(write(bills()), SCHEMA_VERSION);
+
+        List<BillEntry> reminders = snapshot.remindersOn(TODAY);
+
+        assertEquals(2, reminders.size());
+        assertEquals(4, reminders.get(0).getId());
+        assertEquals(TODAY + 3, reminders.get(0).getDueEpochDay());
+        assertEquals(2, reminders.get(1).getId());
+        assertEquals(TODAY + 7, reminders.get(1).getDueEpochDay());
+        assertEquals(1, snapshot.remindersOn(TODAY + 19).size());
+        assertTrue(snapshot.remindersOn(TODAY - 3).isEmpty());
+    }
+
+    @Test
+    public void staleOrCorruptSnapshotsAreNotOpened() throws Exception {
+        File file = write(bills());
+        assertNull(BillSnapshot.open(file, SCHEMA_VERSION + 1));
+        assertNull(BillSnapshot.open(new File(file.getPath() + ".missing"), SCHEMA_VERSION));
+
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(file.length() - 1);
+            int last = output.read();
+            output.seek(file.length() - 1);
+            output.write(last ^ 1);
+        }
+        finally {
+            output.close();
+        }
+        assertNull(BillSnapshot.open(file, SCHEMA_VERSION));
+
+        output = new RandomAccessFile(file, "rw");
+        try {
+            output.setLength(BillSnapshot.HEADER_SIZE + 5);
+        }
+        finally {
+            output.close();
+        }
+        assertNull(BillSnapshot.open(file, SCHEMA_VERSION));
+    }
+
+    /**
+     * Returns unpaid bills in (date, id) order: a monthly bill paid up to 45 days ago, a
+     * weekly bill reminded a week ahead, and bills that do not repeat either side of today
+     */
+    private static List<BillEntry> bills() {
+        List<BillEntry> bills = new ArrayList<>();
+        bills.add(new BillEntry(1, "Rent", 150000, TODAY - 100, 3,
+                new Recurrence(Recurrence.MONTHS, 1, TODAY - 100, Recurrence.NO_OCCURRENCE,
+                        Recurrence.NO_COUNT, TODAY - 45)));
+        bills.add(new BillEntry(2, "Gym", 4500, TODAY, 7,
+                new Recurrence(Recurrence.WEEKS, 1, TODAY, Recurrence.NO_OCCURRENCE, 10)));
+        bills.add(new BillEntry(3, "Water", 2500, TODAY - 2, 0));
+        bills.add(new BillEntry(4, "\u00c9lectricit\u00e9", 8000, TODAY + 3, 3));
+        bills.add(new BillEntry(5, "Phone", 6000, TODAY + 20, 1));
+        bills.add(new BillEntry(6, "Insurance", 90000, TODAY + 400, 7));
+        Collections.sort(bills, BillEntry.DUE_ORDER);
+        return bills;
+    }
+
+    private static File write(List<BillEntry> bills) throws Exception {
+        File file = File.createTempFile("bills", "-snapshot");
+        file.deleteOnExit();
+        BillSnapshot.write(file, SCHEMA_VERSION, bills);
+        return file;
+    }
+}
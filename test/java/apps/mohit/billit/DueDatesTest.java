@@ -0,0 +1,122 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the arithmetic date conversions against java.util.Calendar, which the date helpers
+ * used before: every day of eight centuries is formatted, parsed and split the same way,
+ * months are added the same way, and today's date follows the time zone across midnights and
+ * daylight saving changes while it is cached
+ */
+public class DueDatesTest {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String[] ZONES = {"UTC", "America/New_York", "Europe/London",
+            "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Kiritimati", "America/Sao_Paulo"};
+
+    @Test
+    public void everyDayMatchesTheCalendar() throws Exception {
+        Calendar calendar = gregorian(UTC);
+        for (int day = DueDates.of(1600, 1, 1); day <= DueDates.of(2400, 12, 31); day++) {
+            calendar.setTimeInMillis(day * MILLIS_PER_DAY);
+            int year = calendar.get(Calendar.YEAR);
+            int month = calendar.get(Calendar.MONTH) + 1;
+            int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+            String text = String.format("%04d-%02d-%02d", year, month, dayOfMonth);
+
+            assertEquals(text, DueDates.format(day));
+            assertEquals(day, DueDates.parse(text));
+            assertEquals(day, DueDates.of(year, month, dayOfMonth));
+            assertEquals(year, DueDates.year(day));
+            assertEquals(month, DueDates.month(day));
+            assertEquals(dayOfMonth, DueDates.dayOfMonth(day));
+            assertEquals(calendar.getActualMaximum(Calendar.DAY_OF_MONTH),
+                    DueDates.lengthOfMonth(year, month));
+        }
+    }
+
+    @Test
+    public void addingMonthsMatchesTheCalendar() throws Exception {
+        Random random = new Random(22);
+        Calendar calendar = gregorian(UTC);
+        for (int i = 0; i < 100000; i++) {
+            int day = DueDates.of(1900, 1, 1) + random.nextInt(200 * 365);
+            int months = random.nextInt(121) - 60;
+            calendar.setTimeInMillis(day * MILLIS_PER_DAY);
+            int monthIndex = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+            calendar.add(Calendar.MONTH, months);
+
+            assertEquals(monthIndex, DueDates.monthIndex(day));
+            assertEquals(calendar.getTimeInMillis() / MILLIS_PER_DAY, DueDates.addMonths(day, months));
+        }
+    }
+
+    @Test
+    public void parsingRejectsWhatIsNotADate() throws Exception {
+        assertEquals(DueDates.of(2026, 3, 5), DueDates.parse("2026-3-5"));
+        String[] invalid = {"", "2026", "2026-03", "2026-03-05-01", "2026/03/05", "2026-13-01",
+                "2026-00-10", "2026-02-29", "2026-04-31", "2026-03-", "-2026-03-05", "2026-03-05 ",
+                "20261234567-01-01"};
+        for (String text : invalid) {
+            try {
+                DueDates.parse(text);
+                fail("Parsed " + text);
+            }
+            catch (NumberFormatException expected) {
+                // The date is rejected
+            }
+        }
+    }
+
+    @Test
+    public void todayFollowsTheTimeZone() throws Exception {
+        TimeZone original = TimeZone.getDefault();
+        Random random = new Random(18);
+        try {
+            for (String id : ZONES) {
+                TimeZone zone = TimeZone.getTimeZone(id);
+                TimeZone.setDefault(zone);
+                DueDates.resetToday();
+                Calendar calendar = gregorian(zone);
+
+                // Walk forward in small steps, so most moments are answered from the cache
+                long[] moments = new long[20000];
+                long moment = DueDates.of(2020, 1, 1) * MILLIS_PER_DAY;
+                for (int i = 0; i < moments.length; i++) {
+                    moment += random.nextInt(6 * 60 * 60 * 1000);
+                    moments[i] = moment;
+                }
+                Arrays.sort(moments);
+                for (long now : moments) {
+                    calendar.setTimeInMillis(now);
+                    int expected = DueDates.of(calendar.get(Calendar.YEAR),
+                            calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+                    assertEquals(id + " at " + now, expected, DueDates.today(now));
+                }
+            }
+        }
+        finally {
+            TimeZone.setDefault(original);
+            DueDates.resetToday();
+        }
+    }
+
+    /**
+     * Returns a calendar that uses Gregorian rules for every year, as the epoch days do
+     */
+    private static Calendar gregorian(TimeZone zone) {
+        GregorianCalendar calendar = new GregorianCalendar(zone);
+        calendar.setGregorianChange(new Date(Long.MIN_VALUE));
+        return calendar;
+    }
+}
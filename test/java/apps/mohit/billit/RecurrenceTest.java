@@ -0,0 +1,97 @@
+package apps.mohit.billit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that repeat rules expand only the occurrences of the range asked for, keep monthly
+ * bills on their day of the month, stop at their end date or count, and skip the
+ * occurrences already paid
+ */
+public class RecurrenceTest {
+
+    private static final int JAN_31_2026 = DueDates.parse("2026-01-31");
+
+    @Test
+    public void monthlyBillsKeepTheirDayOfTheMonth() throws Exception {
+        Recurrence monthly = new Recurrence(Recurrence.MONTHS, 1, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, Recurrence.NO_COUNT);
+
+        assertEquals("2026-02-28", DueDates.format(monthly.occurrence(1)));
+        assertEquals("2026-03-31", DueDates.format(monthly.occurrence(2)));
+        assertEquals("2026-04-30", DueDates.format(monthly.occurrence(3)));
+        assertEquals(DueDates.parse("2026-03-31"), monthly.nextOnOrAfter(DueDates.parse("2026-03-01")));
+    }
+
+    @Test
+    public void onlyTheRangeAskedForIsExpanded() throws Exception {
+        Recurrence weekly = new Recurrence(Recurrence.WEEKS, 1, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, Recurrence.NO_COUNT);
+        BillEntry template = new BillEntry(7, "Rent", 100000, JAN_31_2026, 0, weekly);
+        List<BillEntry> occurrences = new ArrayList<>();
+
+        weekly.expand(template, JAN_31_2026 + 700, JAN_31_2026 + 720, DatabaseHelper.FIRST_DAY, 0,
+                DatabaseHelper.NO_LIMIT, occurrences);
+
+        assertEquals(3, occurrences.size());
+        assertEquals(JAN_31_2026 + 700, occurrences.get(0).getDueEpochDay());
+        assertEquals(7, occurrences.get(0).getId());
+        assertEquals(3, weekly.countBetween(JAN_31_2026 + 700, JAN_31_2026 + 720));
+    }
+
+    @Test
+    public void expansionCarriesOnAfterTheLastBillSeen() throws Exception {
+        Recurrence daily = new Recurrence(Recurrence.DAYS, 1, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, Recurrence.NO_COUNT);
+        BillEntry template = new BillEntry(5, "Parking", 500, JAN_31_2026, 0, daily);
+        List<BillEntry> occurrences = new ArrayList<>();
+
+        daily.expand(template, JAN_31_2026, JAN_31_2026 + 10, JAN_31_2026 + 2, 5, 2, occurrences);
+
+        assertEquals(2, occurrences.size());
+        assertEquals(JAN_31_2026 + 3, occurrences.get(0).getDueEpochDay());
+        assertEquals(JAN_31_2026 + 4, occurrences.get(1).getDueEpochDay());
+    }
+
+    @Test
+    public void rulesStopAtTheirCountOrEndDate() throws Exception {
+        Recurrence counted = new Recurrence(Recurrence.WEEKS, 2, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, 3);
+        Recurrence until = new Recurrence(Recurrence.DAYS, 10, JAN_31_2026, JAN_31_2026 + 25,
+                Recurrence.NO_COUNT);
+
+        assertEquals(JAN_31_2026 + 28, counted.lastDay());
+        assertEquals(3, counted.countBetween(DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY));
+        assertEquals(Recurrence.NO_OCCURRENCE, counted.nextOnOrAfter(JAN_31_2026 + 29));
+        assertEquals(3, until.countBetween(DatabaseHelper.FIRST_DAY, JAN_31_2026 + 100));
+        assertEquals(Recurrence.NO_OCCURRENCE, until.nextOnOrAfter(JAN_31_2026 + 21));
+    }
+
+    @Test
+    public void paidOccurrencesAreSkipped() throws Exception {
+        Recurrence monthly = new Recurrence(Recurrence.MONTHS, 1, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, 3).paidThrough(DueDates.parse("2026-02-28"));
+
+        assertEquals(DueDates.parse("2026-03-31"), monthly.nextOnOrAfter(DatabaseHelper.FIRST_DAY));
+        assertEquals(1, monthly.countBetween(DatabaseHelper.FIRST_DAY, DatabaseHelper.LAST_DAY));
+        assertEquals(DueDates.parse("2026-03-31"), monthly.startingOn(JAN_31_2026).lastDay());
+        assertEquals(Recurrence.NO_OCCURRENCE,
+                monthly.paidThrough(DueDates.parse("2026-03-31")).nextOnOrAfter(DatabaseHelper.FIRST_DAY));
+    }
+
+    @Test
+    public void occurrencesOfOneBillHaveDifferentIds() throws Exception {
+        Recurrence monthly = new Recurrence(Recurrence.MONTHS, 1, JAN_31_2026,
+                Recurrence.NO_OCCURRENCE, Recurrence.NO_COUNT);
+        BillEntry template = new BillEntry(3, "Phone", 4500, JAN_31_2026, 0, monthly);
+
+        assertFalse(template.occurrenceOn(monthly.occurrence(1)).getOccurrenceId() ==
+                template.occurrenceOn(monthly.occurrence(2)).getOccurrenceId());
+        assertEquals(3, new BillEntry(3, "Phone", 4500, JAN_31_2026, 0).getOccurrenceId());
+    }
+
+}